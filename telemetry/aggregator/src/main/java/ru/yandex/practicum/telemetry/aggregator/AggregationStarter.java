@@ -1,28 +1,29 @@
 package ru.yandex.practicum.telemetry.aggregator;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.kafka.KafkaClientMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
-import org.apache.kafka.common.errors.WakeupException;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.kafka.deserializer.SensorEventDeserializer;
 import ru.yandex.practicum.kafka.serializer.AvroSerializer;
-import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
-import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
 import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties.CommitMode;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties.StateStoreType;
+import ru.yandex.practicum.telemetry.aggregator.state.ChangelogHubStateStore;
+import ru.yandex.practicum.telemetry.aggregator.state.HubStateStore;
+import ru.yandex.practicum.telemetry.aggregator.state.InMemoryHubStateStore;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
@@ -30,12 +31,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @RequiredArgsConstructor
 public class AggregationStarter {
 
+    private static final long RESTART_INITIAL_BACKOFF_MS = 1000;
+    private static final long RESTART_MAX_BACKOFF_MS = 30000;
+
     private final AggregatorProperties properties;
     private final SensorsSnapshotAggregator snapshotAggregator;
+    private final MeterRegistry meterRegistry;
     private final AtomicBoolean running = new AtomicBoolean(false);
 
-    private KafkaConsumer<String, SensorEventAvro> consumer;
-    private KafkaProducer<String, SensorsSnapshotAvro> producer;
+    private final List<AggregationWorker> workers = new ArrayList<>();
+    private HubEventsListener hubEventsListener;
+    private final Map<KafkaProducer<String, SpecificRecordBase>, KafkaClientMetrics> producers = new LinkedHashMap<>();
 
     public void start() {
         if (!running.compareAndSet(false, true)) {
@@ -43,31 +49,37 @@ public class AggregationStarter {
             return;
         }
 
-        consumer = createConsumer();
-        producer = createProducer();
-
-        String sensorsTopic = properties.getKafka().getSensorsTopic();
-        consumer.subscribe(List.of(sensorsTopic));
-        log.info("Агрегатор подписан на топик {} (pollTimeoutMs={})", sensorsTopic, properties.getPollTimeoutMs());
-
+        int workerCount = Math.max(properties.getWorkers(), 1);
+        List<Thread> threads = new ArrayList<>(workerCount);
         try {
-            Duration pollTimeout = Duration.ofMillis(properties.getPollTimeoutMs());
-            while (running.get()) {
-                ConsumerRecords<String, SensorEventAvro> records = consumer.poll(pollTimeout);
-                if (records.isEmpty()) {
-                    continue;
-                }
-                processRecords(records);
-                producer.flush();
-                consumer.commitSync();
+            boolean transactional = properties.getCommit().getMode() == CommitMode.TRANSACTIONAL;
+            boolean changelog = properties.getState().getStore() == StateStoreType.CHANGELOG;
+            if (changelog) {
+                ChangelogHubStateStore.ensureTopic(properties);
+            }
+            KafkaProducer<String, SpecificRecordBase> sharedProducer = transactional ? null : createProducer(null);
+            for (int i = 0; i < workerCount; i++) {
+                int workerId = i;
+                String name = "aggregator-worker-" + i;
+                threads.add(new Thread(() -> supervise(name,
+                        () -> runWorker(workerId, transactional, changelog, sharedProducer)), name));
+            }
+            String hubsTopic = properties.getKafka().getHubsTopic();
+            if (hubsTopic != null && !hubsTopic.isBlank()) {
+                threads.add(new Thread(() -> supervise("aggregator-hub-events", this::runHubEventsListener),
+                        "aggregator-hub-events"));
             }
-        } catch (WakeupException e) {
-            if (running.get()) {
-                throw e;
+            log.info("Запуск агрегатора с {} воркерами (state={})", workerCount, properties.getState().getStore());
+            threads.forEach(Thread::start);
+
+            for (Thread thread : threads) {
+                thread.join();
             }
-            log.info("Получен сигнал на остановку агрегатора");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
         } catch (Exception e) {
-            log.error("Ошибка во время обработки событий от датчиков", e);
+            log.error("Ошибка во время запуска агрегатора", e);
         } finally {
             closeResources();
             running.set(false);
@@ -76,53 +88,89 @@ public class AggregationStarter {
 
     public void stop() {
         running.set(false);
-        if (consumer != null) {
-            consumer.wakeup();
+        synchronized (workers) {
+            workers.forEach(AggregationWorker::wakeup);
+            if (hubEventsListener != null) {
+                hubEventsListener.wakeup();
+            }
         }
     }
 
-    private void processRecords(ConsumerRecords<String, SensorEventAvro> records) {
-        for (ConsumerRecord<String, SensorEventAvro> record : records) {
-            SensorEventAvro event = record.value();
-            if (event == null) continue;
-
-            Optional<SensorsSnapshotAvro> snapshotOptional = snapshotAggregator.updateState(event);
-            log.debug("event=sensor-event-received hubId={} sensorId={} partition={} offset={}",
-                    event.getHubId(), event.getId(), record.partition(), record.offset());
-            snapshotOptional.ifPresent(this::publishSnapshot);
+    private void supervise(String task, Callable<Boolean> attempt) {
+        long backoffMs = RESTART_INITIAL_BACKOFF_MS;
+        while (running.get()) {
+            long startedAt = System.currentTimeMillis();
+            try {
+                if (!attempt.call()) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("Задача {} завершилась с ошибкой", task, e);
+            }
+            if (System.currentTimeMillis() - startedAt > RESTART_MAX_BACKOFF_MS) {
+                backoffMs = RESTART_INITIAL_BACKOFF_MS;
+            }
+            log.warn("event=task-restart task={} backoffMs={}", task, backoffMs);
+            if (!sleepWhileRunning(backoffMs)) {
+                return;
+            }
+            backoffMs = Math.min(backoffMs * 2, RESTART_MAX_BACKOFF_MS);
         }
     }
 
-    private void publishSnapshot(SensorsSnapshotAvro snapshot) {
-        String topic = properties.getKafka().getSnapshotsTopic();
-        ProducerRecord<String, SensorsSnapshotAvro> record =
-                new ProducerRecord<>(topic, snapshot.getHubId(), snapshot);
-
-        producer.send(record, (metadata, exception) -> {
-            if (exception != null) {
-                log.error("Не удалось отправить снапшот хаба {} в топик {}", snapshot.getHubId(), topic, exception);
-            } else if (metadata != null) {
-                log.info("event=snapshot-produced hubId={} topic={} partition={} offset={}",
-                        snapshot.getHubId(), metadata.topic(), metadata.partition(), metadata.offset());
+    private boolean runWorker(int workerId, boolean transactional, boolean changelog,
+                              KafkaProducer<String, SpecificRecordBase> sharedProducer) {
+        KafkaProducer<String, SpecificRecordBase> producer = transactional
+                ? createProducer(properties.getCommit().getTransactionalIdPrefix() + "-" + workerId)
+                : sharedProducer;
+        AggregationWorker worker = null;
+        try {
+            HubStateStore stateStore = changelog
+                    ? new ChangelogHubStateStore(properties, producer, properties.getKafka().getGroupId() + "-restore-" + workerId)
+                    : InMemoryHubStateStore.INSTANCE;
+            worker = new AggregationWorker(workerId, properties, snapshotAggregator, producer,
+                    stateStore, meterRegistry, running);
+            synchronized (workers) {
+                workers.add(worker);
+            }
+            worker.run();
+            return worker.failed();
+        } finally {
+            if (worker != null) {
+                synchronized (workers) {
+                    workers.remove(worker);
+                }
+            }
+            if (transactional) {
+                closeProducer(producer);
             }
-        });
+        }
     }
 
-    private KafkaConsumer<String, SensorEventAvro> createConsumer() {
-        Properties config = new Properties();
-        AggregatorProperties.Kafka kafka = properties.getKafka();
-
-        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
-        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, SensorEventDeserializer.class.getName());
-        config.put(ConsumerConfig.GROUP_ID_CONFIG, kafka.getGroupId());
-        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+    private boolean runHubEventsListener() {
+        HubEventsListener listener = new HubEventsListener(properties, snapshotAggregator, running);
+        synchronized (workers) {
+            hubEventsListener = listener;
+        }
+        listener.run();
+        return listener.failed();
+    }
 
-        return new KafkaConsumer<>(config);
+    private boolean sleepWhileRunning(long delayMs) {
+        long deadline = System.currentTimeMillis() + delayMs;
+        try {
+            for (long remaining = delayMs; running.get() && remaining > 0;
+                 remaining = deadline - System.currentTimeMillis()) {
+                Thread.sleep(Math.min(remaining, 100));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return running.get();
     }
 
-    private KafkaProducer<String, SensorsSnapshotAvro> createProducer() {
+    private KafkaProducer<String, SpecificRecordBase> createProducer(String transactionalId) {
         Properties config = new Properties();
         AggregatorProperties.Kafka kafka = properties.getKafka();
 
@@ -130,44 +178,44 @@ public class AggregationStarter {
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
         config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, AvroSerializer.class.getName());
         config.put(ProducerConfig.ACKS_CONFIG, "all");
+        if (transactionalId != null) {
+            config.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, transactionalId);
+        }
 
-        return new KafkaProducer<>(config);
+        KafkaProducer<String, SpecificRecordBase> producer = new KafkaProducer<>(config);
+        KafkaClientMetrics metrics = new KafkaClientMetrics(producer);
+        metrics.bindTo(meterRegistry);
+        synchronized (producers) {
+            producers.put(producer, metrics);
+        }
+        return producer;
     }
 
-    private void closeResources() {
-        try {
-            if (producer != null) {
-                producer.flush();
-            }
-        } catch (Exception e) {
-            log.warn("Не удалось сбросить буфер продюсера перед остановкой", e);
+    private void closeProducer(KafkaProducer<String, SpecificRecordBase> producer) {
+        KafkaClientMetrics metrics;
+        synchronized (producers) {
+            metrics = producers.remove(producer);
         }
-
-        try {
-            if (consumer != null) {
-                consumer.commitSync();
-            }
-        } catch (Exception e) {
-            log.warn("Не удалось зафиксировать смещения перед остановкой", e);
+        if (metrics != null) {
+            metrics.close();
         }
-
         try {
-            if (consumer != null) {
-                consumer.close();
-            }
+            producer.close(Duration.ofSeconds(5));
         } catch (Exception e) {
-            log.warn("Ошибка при закрытии консьюмера", e);
+            log.warn("Ошибка при закрытии продюсера", e);
         }
+    }
 
-        try {
-            if (producer != null) {
-                producer.close(Duration.ofSeconds(5));
-            }
-        } catch (Exception e) {
-            log.warn("Ошибка при закрытии продюсера", e);
+    private void closeResources() {
+        synchronized (workers) {
+            workers.clear();
+            hubEventsListener = null;
         }
 
-        consumer = null;
-        producer = null;
+        List<KafkaProducer<String, SpecificRecordBase>> remaining;
+        synchronized (producers) {
+            remaining = new ArrayList<>(producers.keySet());
+        }
+        remaining.forEach(this::closeProducer);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,591 @@
+package ru.yandex.practicum.telemetry.aggregator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.kafka.KafkaClientMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.OutOfOrderSequenceException;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorEventDeserializer;
+import ru.yandex.practicum.kafka.header.SnapshotHeaders;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties.CoalesceMode;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties.CommitMode;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties.SnapshotMode;
+import ru.yandex.practicum.telemetry.aggregator.state.HubStateStore;
+import ru.yandex.practicum.telemetry.aggregator.state.StoredHubState;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+@Slf4j
+final class AggregationWorker implements Runnable {
+
+    private final int workerId;
+    private final AggregatorProperties properties;
+    private final SensorsSnapshotAggregator snapshotAggregator;
+    private final Producer<String, SpecificRecordBase> producer;
+    private final HubStateStore stateStore;
+    private final AtomicBoolean running;
+    private final KafkaConsumer<String, SensorEventAvro> consumer;
+    private final CommitMode commitMode;
+    private final OffsetWatermarks watermarks = new OffsetWatermarks();
+    private final Map<TopicPartition, OffsetAndMetadata> transactionOffsets = new HashMap<>();
+    private final long transactionMaxNanos;
+    private final CoalesceMode coalesceMode;
+    private final long coalesceWindowNanos;
+    private final Map<String, PendingHub> pendingHubs = new LinkedHashMap<>();
+    private final KafkaClientMetrics consumerMetrics;
+    private final DistributionSummary pollRecords;
+    private final Timer pollToCommit;
+    private final Counter fullSnapshots;
+    private final Counter deltaSnapshots;
+    private final Counter failedSnapshots;
+    private long transactionStartedAt = -1;
+    private long uncommittedSince = -1;
+    private volatile boolean failed;
+
+    AggregationWorker(int workerId,
+                      AggregatorProperties properties,
+                      SensorsSnapshotAggregator snapshotAggregator,
+                      Producer<String, SpecificRecordBase> producer,
+                      HubStateStore stateStore,
+                      MeterRegistry meterRegistry,
+                      AtomicBoolean running) {
+        this.workerId = workerId;
+        this.properties = properties;
+        this.snapshotAggregator = snapshotAggregator;
+        this.producer = producer;
+        this.stateStore = stateStore;
+        this.running = running;
+        this.commitMode = properties.getCommit().getMode();
+        this.transactionMaxNanos = Duration.ofMillis(properties.getCommit().getTransactionMaxMs()).toNanos();
+        this.coalesceMode = resolveCoalesceMode(properties.getSnapshot().getCoalesce());
+        this.coalesceWindowNanos = Duration.ofMillis(properties.getSnapshot().getCoalesceWindowMs()).toNanos();
+        this.consumer = createConsumer();
+
+        String worker = Integer.toString(workerId);
+        this.consumerMetrics = new KafkaClientMetrics(consumer);
+        this.consumerMetrics.bindTo(meterRegistry);
+        this.pollRecords = DistributionSummary.builder("aggregator.poll.records")
+                .description("Количество событий датчиков, полученных одним poll")
+                .tag("worker", worker)
+                .register(meterRegistry);
+        this.pollToCommit = Timer.builder("aggregator.poll.to.commit")
+                .description("Время от получения событий до фиксации их смещений")
+                .tag("worker", worker)
+                .tag("mode", commitMode.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.fullSnapshots = snapshotCounter(meterRegistry, worker, SnapshotHeaders.FORMAT_FULL, "success");
+        this.deltaSnapshots = snapshotCounter(meterRegistry, worker, SnapshotHeaders.FORMAT_DELTA, "success");
+        this.failedSnapshots = snapshotCounter(meterRegistry, worker, "any", "error");
+    }
+
+    @Override
+    public void run() {
+        String sensorsTopic = properties.getKafka().getSensorsTopic();
+        consumer.subscribe(List.of(sensorsTopic), new WatermarkRebalanceListener());
+        log.info("Воркер агрегатора {} подписан на топик {} (pollTimeoutMs={}, commitMode={}, coalesce={})",
+                workerId, sensorsTopic, properties.getPollTimeoutMs(), commitMode, coalesceMode);
+
+        boolean graceful = true;
+        try {
+            if (commitMode == CommitMode.TRANSACTIONAL) {
+                producer.initTransactions();
+            }
+            Duration pollTimeout = Duration.ofMillis(properties.getPollTimeoutMs());
+            while (running.get()) {
+                ConsumerRecords<String, SensorEventAvro> records = consumer.poll(nextPollTimeout(pollTimeout));
+                if (!records.isEmpty()) {
+                    pollRecords.record(records.count());
+                    if (uncommittedSince < 0) {
+                        uncommittedSince = System.nanoTime();
+                    }
+                }
+                switch (commitMode) {
+                    case SYNC -> processAndCommitSync(records);
+                    case PIPELINED -> {
+                        processRecords(records);
+                        publishDirtyHubs();
+                        commitWatermarks();
+                    }
+                    case TRANSACTIONAL -> processInTransaction(records);
+                }
+                evictExpiredHubs();
+            }
+        } catch (WakeupException e) {
+            if (running.get()) {
+                throw e;
+            }
+            log.info("Воркер агрегатора {} получил сигнал на остановку", workerId);
+        } catch (Exception e) {
+            graceful = false;
+            failed = true;
+            log.error("Ошибка во время обработки событий от датчиков в воркере {}", workerId, e);
+        } finally {
+            closeConsumer(graceful);
+        }
+    }
+
+    void wakeup() {
+        consumer.wakeup();
+    }
+
+    boolean failed() {
+        return failed;
+    }
+
+    private void processRecords(ConsumerRecords<String, SensorEventAvro> records) {
+        for (ConsumerRecord<String, SensorEventAvro> record : records) {
+            SensorEventAvro event = record.value();
+            if (event == null) continue;
+
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            SourceOffset source = new SourceOffset(partition, record.offset());
+            log.debug("event=sensor-event-received worker={} hubId={} sensorId={} partition={} offset={}",
+                    workerId, event.getHubId(), event.getId(), record.partition(), record.offset());
+            reloadEvicted(event.getHubId(), record.partition());
+            boolean changed = snapshotAggregator.applyEvent(event, record.partition());
+            if (changed && coalesceMode == CoalesceMode.NONE) {
+                snapshotAggregator.flush(event.getHubId()).ifPresent(update -> {
+                    trackSource(source);
+                    publishSnapshot(update, record.partition(), List.of(source));
+                });
+            } else if (changed) {
+                trackSource(source);
+                pendingHubs.computeIfAbsent(event.getHubId(), hubId -> new PendingHub(System.nanoTime()))
+                        .sources.add(source);
+            }
+            if (commitMode == CommitMode.PIPELINED) {
+                watermarks.consumed(partition, record.offset());
+            } else if (commitMode == CommitMode.TRANSACTIONAL) {
+                transactionOffsets.put(partition, new OffsetAndMetadata(record.offset() + 1));
+            }
+        }
+        flushPendingHubs(coalesceMode == CoalesceMode.POLL);
+    }
+
+    private void reloadEvicted(String hubId, int partition) {
+        if (hubId == null || !stateStore.isDurable() || snapshotAggregator.contains(hubId)) {
+            return;
+        }
+        try {
+            stateStore.load(partition, hubId)
+                    .filter(snapshotAggregator::reload)
+                    .ifPresent(stored -> log.info("event=hub-reloaded worker={} hubId={} sequence={} sensors={}",
+                            workerId, hubId, stored.sequence(), stored.snapshot().getSensorsState().size()));
+        } catch (Exception e) {
+            log.warn("Не удалось загрузить вытесненное состояние хаба {}, оно будет собрано заново", hubId, e);
+        }
+    }
+
+    private void publishDirtyHubs() {
+        for (TopicPartition partition : consumer.assignment()) {
+            for (String hubId : snapshotAggregator.drainDirtyHubs(partition.partition())) {
+                snapshotAggregator.flush(hubId).ifPresent(update -> {
+                    beginTransactionIfNeeded();
+                    publishSnapshot(update, partition.partition(), List.of());
+                });
+            }
+        }
+    }
+
+    private void evictExpiredHubs() {
+        int evicted = snapshotAggregator.evictExpired();
+        if (evicted > 0) {
+            log.info("event=hubs-evicted worker={} evicted={} remaining={}",
+                    workerId, evicted, snapshotAggregator.hubCount());
+        }
+    }
+
+    private void trackSource(SourceOffset source) {
+        if (commitMode == CommitMode.PIPELINED) {
+            watermarks.beginSend(source.partition(), source.offset());
+        }
+    }
+
+    private void flushPendingHubs(boolean force) {
+        if (pendingHubs.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, PendingHub>> iterator = pendingHubs.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, PendingHub> entry = iterator.next();
+            PendingHub pending = entry.getValue();
+            if (!force && now - pending.firstChangeAt < coalesceWindowNanos) {
+                break;
+            }
+            iterator.remove();
+            snapshotAggregator.flush(entry.getKey()).ifPresentOrElse(
+                    update -> publishSnapshot(update, pending.sources.get(0).partition().partition(), pending.sources),
+                    () -> completeSources(pending.sources, null));
+        }
+    }
+
+    private Duration nextPollTimeout(Duration pollTimeout) {
+        if (coalesceMode != CoalesceMode.WINDOW || pendingHubs.isEmpty()) {
+            return pollTimeout;
+        }
+        long oldest = pendingHubs.values().iterator().next().firstChangeAt;
+        long remaining = oldest + coalesceWindowNanos - System.nanoTime();
+        return Duration.ofNanos(Math.max(0, Math.min(remaining, pollTimeout.toNanos())));
+    }
+
+    private CoalesceMode resolveCoalesceMode(CoalesceMode configured) {
+        if (configured == CoalesceMode.WINDOW && commitMode != CommitMode.PIPELINED) {
+            log.warn("Окно объединения снапшотов поддерживается только при commit.mode=PIPELINED, "
+                    + "воркер {} будет объединять снапшоты в пределах одного poll", workerId);
+            return CoalesceMode.POLL;
+        }
+        return configured;
+    }
+
+    private void processAndCommitSync(ConsumerRecords<String, SensorEventAvro> records) {
+        publishDirtyHubs();
+        if (records.isEmpty()) {
+            return;
+        }
+        processRecords(records);
+        producer.flush();
+        consumer.commitSync();
+        recordCommit();
+    }
+
+    private void processInTransaction(ConsumerRecords<String, SensorEventAvro> records) {
+        if (!records.isEmpty()) {
+            beginTransactionIfNeeded();
+            processRecords(records);
+        }
+        publishDirtyHubs();
+        if (transactionStartedAt >= 0 && System.nanoTime() - transactionStartedAt >= transactionMaxNanos) {
+            commitTransaction();
+        }
+    }
+
+    private void beginTransactionIfNeeded() {
+        if (commitMode == CommitMode.TRANSACTIONAL && transactionStartedAt < 0) {
+            producer.beginTransaction();
+            transactionStartedAt = System.nanoTime();
+        }
+    }
+
+    private void commitTransaction() {
+        if (transactionStartedAt < 0) {
+            return;
+        }
+        try {
+            if (!transactionOffsets.isEmpty()) {
+                producer.sendOffsetsToTransaction(new HashMap<>(transactionOffsets), consumer.groupMetadata());
+            }
+            producer.commitTransaction();
+            recordCommit();
+            log.debug("event=transaction-committed worker={} partitions={}", workerId, transactionOffsets.size());
+        } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+            throw e;
+        } catch (KafkaException e) {
+            log.error("event=transaction-aborted worker={} partitions={}", workerId, transactionOffsets.size(), e);
+            producer.abortTransaction();
+            recover(consumer.assignment(), e);
+        } finally {
+            transactionOffsets.clear();
+            transactionStartedAt = -1;
+        }
+    }
+
+    private void commitWatermarks() {
+        Map<TopicPartition, Exception> failures = watermarks.failures();
+        if (!failures.isEmpty()) {
+            producer.flush();
+            recover(failures.keySet(), failures.values().iterator().next());
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = watermarks.committable();
+        if (offsets.isEmpty()) {
+            return;
+        }
+        watermarks.markCommitted(offsets);
+        long polledAt = uncommittedSince;
+        uncommittedSince = -1;
+        consumer.commitAsync(offsets, (committed, exception) -> {
+            if (exception != null) {
+                log.warn("Не удалось асинхронно зафиксировать смещения воркера {}: {}", workerId, exception.toString());
+            } else if (polledAt >= 0) {
+                pollToCommit.record(System.nanoTime() - polledAt, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    private void recover(Collection<TopicPartition> partitions, Exception cause) {
+        Set<TopicPartition> affected = new HashSet<>(partitions);
+        affected.retainAll(consumer.assignment());
+        watermarks.remove(partitions);
+        if (affected.isEmpty()) {
+            return;
+        }
+        log.warn("event=partitions-recovering worker={} partitions={} cause={}", workerId, affected, cause.toString());
+        pendingHubs.values().removeIf(pending -> affected.contains(pending.sources.get(0).partition()));
+        resetState(affected);
+        seekToCommitted(affected);
+    }
+
+    private void resetState(Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        List<Integer> partitionIds = partitions.stream().map(TopicPartition::partition).toList();
+        int discarded = 0;
+        int restored = 0;
+        if (stateStore.isDurable()) {
+            discarded = snapshotAggregator.discardPartitions(partitionIds);
+            restored = stateStore.restore(partitionIds, snapshotAggregator::restore);
+        }
+        int republished = snapshotAggregator.requestFullSnapshots(partitionIds);
+        log.info("event=state-reset worker={} partitions={} discarded={} restored={} republished={}",
+                workerId, partitionIds, discarded, restored, republished);
+    }
+
+    private void seekToCommitted(Set<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(partitions);
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+    }
+
+    private void publishSnapshot(SnapshotUpdate update, int sourcePartition, List<SourceOffset> sources) {
+        String topic = properties.getKafka().getSnapshotsTopic();
+        ProducerRecord<String, SpecificRecordBase> record =
+                new ProducerRecord<>(topic, update.hubId(), update.payload());
+        update.changedSensorIds().forEach(sensorId -> SnapshotHeaders.addChangedSensor(record.headers(), sensorId));
+        SnapshotHeaders.setFormat(record.headers(),
+                update.isDelta() ? SnapshotHeaders.FORMAT_DELTA : SnapshotHeaders.FORMAT_FULL);
+        SnapshotHeaders.setSequence(record.headers(), update.sequence());
+        if (!update.isDelta() && properties.getSnapshot().getMode() == SnapshotMode.DELTA) {
+            SnapshotHeaders.markDeltaBase(record.headers());
+        }
+
+        Consumer<Exception> completion = sendCompletion(sources, 2);
+        producer.send(record, (metadata, exception) -> {
+            completion.accept(exception);
+            if (exception != null) {
+                failedSnapshots.increment();
+                log.error("Не удалось отправить снапшот хаба {} в топик {}", update.hubId(), topic, exception);
+            } else if (metadata != null) {
+                (update.isDelta() ? deltaSnapshots : fullSnapshots).increment();
+                log.info("event=snapshot-produced hubId={} sequence={} delta={} changed={} topic={} partition={} offset={}",
+                        update.hubId(), update.sequence(), update.isDelta(), update.changedSensorIds().size(),
+                        metadata.topic(), metadata.partition(), metadata.offset());
+            }
+        });
+
+        if (update.state() == null) {
+            completion.accept(null);
+            return;
+        }
+        StoredHubState state = new StoredHubState(update.hubId(), sourcePartition, update.state(), update.sequence());
+        stateStore.save(state, exception -> {
+            if (exception != null) {
+                log.error("Не удалось сохранить состояние хаба {} в хранилище", update.hubId(), exception);
+            }
+            completion.accept(exception);
+        });
+    }
+
+    private void recordCommit() {
+        if (uncommittedSince >= 0) {
+            pollToCommit.record(System.nanoTime() - uncommittedSince, TimeUnit.NANOSECONDS);
+            uncommittedSince = -1;
+        }
+    }
+
+    private static Counter snapshotCounter(MeterRegistry meterRegistry, String worker, String format, String outcome) {
+        return Counter.builder("aggregator.snapshots")
+                .description("Снапшоты, отправленные агрегатором в Kafka")
+                .tag("worker", worker)
+                .tag("format", format)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Consumer<Exception> sendCompletion(List<SourceOffset> sources, int parts) {
+        AtomicInteger remaining = new AtomicInteger(parts);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        return exception -> {
+            if (exception != null) {
+                failure.compareAndSet(null, exception);
+            }
+            if (remaining.decrementAndGet() == 0) {
+                completeSources(sources, failure.get());
+            }
+        };
+    }
+
+    private void completeSources(List<SourceOffset> sources, Exception exception) {
+        if (commitMode != CommitMode.PIPELINED) {
+            return;
+        }
+        for (SourceOffset source : sources) {
+            watermarks.completeSend(source.partition(), source.offset(), exception);
+        }
+    }
+
+    private KafkaConsumer<String, SensorEventAvro> createConsumer() {
+        Properties config = new Properties();
+        AggregatorProperties.Kafka kafka = properties.getKafka();
+
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, SensorEventDeserializer.class.getName());
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, kafka.getGroupId());
+        config.put(ConsumerConfig.CLIENT_ID_CONFIG, kafka.getGroupId() + "-" + workerId);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+        return new KafkaConsumer<>(config);
+    }
+
+    private void closeConsumer(boolean graceful) {
+        if (commitMode == CommitMode.TRANSACTIONAL) {
+            closeTransaction(graceful);
+        } else {
+            flushAndCommit();
+        }
+        if (!graceful) {
+            try {
+                resetState(consumer.assignment());
+            } catch (Exception e) {
+                log.warn("Не удалось сбросить состояние партиций воркера {}", workerId, e);
+            }
+        }
+
+        consumerMetrics.close();
+        try {
+            consumer.close();
+        } catch (Exception e) {
+            log.warn("Ошибка при закрытии консьюмера воркера {}", workerId, e);
+        }
+        stateStore.close();
+    }
+
+    private void closeTransaction(boolean graceful) {
+        try {
+            if (graceful) {
+                commitTransaction();
+            } else if (transactionStartedAt >= 0) {
+                transactionStartedAt = -1;
+                transactionOffsets.clear();
+                producer.abortTransaction();
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось завершить транзакцию перед остановкой воркера {}", workerId, e);
+        }
+    }
+
+    private void flushAndCommit() {
+        try {
+            flushPendingHubs(true);
+            producer.flush();
+        } catch (Exception e) {
+            log.warn("Не удалось сбросить буфер продюсера перед остановкой воркера {}", workerId, e);
+        }
+
+        try {
+            if (commitMode == CommitMode.PIPELINED) {
+                consumer.commitSync(watermarks.committable());
+            } else {
+                consumer.commitSync();
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось зафиксировать смещения перед остановкой воркера {}", workerId, e);
+        }
+    }
+
+    private record SourceOffset(TopicPartition partition, long offset) {
+    }
+
+    private static final class PendingHub {
+
+        private final long firstChangeAt;
+        private final List<SourceOffset> sources = new ArrayList<>();
+
+        private PendingHub(long firstChangeAt) {
+            this.firstChangeAt = firstChangeAt;
+        }
+    }
+
+    private final class WatermarkRebalanceListener implements ConsumerRebalanceListener {
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            if (commitMode == CommitMode.TRANSACTIONAL) {
+                commitTransaction();
+            } else if (commitMode == CommitMode.PIPELINED && !partitions.isEmpty()) {
+                flushPendingHubs(true);
+                producer.flush();
+                Map<TopicPartition, OffsetAndMetadata> offsets = watermarks.committable(partitions);
+                if (!offsets.isEmpty()) {
+                    consumer.commitSync(offsets);
+                }
+            }
+            watermarks.remove(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            if (partitions.isEmpty()) {
+                return;
+            }
+            long startedAt = System.nanoTime();
+            int restored = stateStore.restore(
+                    partitions.stream().map(TopicPartition::partition).toList(),
+                    snapshotAggregator::restore);
+            if (restored > 0) {
+                log.info("event=state-restored worker={} partitions={} records={} durationMs={}",
+                        workerId, partitions.size(), restored,
+                        Duration.ofNanos(System.nanoTime() - startedAt).toMillis());
+            }
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            watermarks.remove(partitions);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.telemetry.aggregator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import ru.yandex.practicum.kafka.deserializer.HubEventDeserializer;
+import ru.yandex.practicum.kafka.telemetry.event.DeviceRemovedEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.HubEventAvro;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+final class HubEventsListener implements Runnable {
+
+    private final AggregatorProperties properties;
+    private final SensorsSnapshotAggregator snapshotAggregator;
+    private final AtomicBoolean running;
+    private final KafkaConsumer<String, HubEventAvro> consumer;
+    private volatile boolean failed;
+
+    HubEventsListener(AggregatorProperties properties,
+                      SensorsSnapshotAggregator snapshotAggregator,
+                      AtomicBoolean running) {
+        this.properties = properties;
+        this.snapshotAggregator = snapshotAggregator;
+        this.running = running;
+        this.consumer = createConsumer();
+    }
+
+    @Override
+    public void run() {
+        String hubsTopic = properties.getKafka().getHubsTopic();
+        try {
+            List<TopicPartition> partitions = consumer.partitionsFor(hubsTopic).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToEnd(partitions);
+            log.info("Агрегатор читает события хабов из всех партиций топика {} (partitions={})",
+                    hubsTopic, partitions.size());
+
+            Duration pollTimeout = Duration.ofMillis(properties.getPollTimeoutMs());
+            while (running.get()) {
+                for (ConsumerRecord<String, HubEventAvro> record : consumer.poll(pollTimeout)) {
+                    HubEventAvro event = record.value();
+                    if (event != null && event.getPayload() instanceof DeviceRemovedEventAvro removed) {
+                        boolean purged = snapshotAggregator.removeSensor(event.getHubId(), removed.getId());
+                        log.debug("event=device-removed hubId={} sensorId={} purged={}",
+                                event.getHubId(), removed.getId(), purged);
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            if (running.get()) {
+                throw e;
+            }
+        } catch (Exception e) {
+            failed = true;
+            log.error("Ошибка во время обработки событий хабов в агрегаторе", e);
+        } finally {
+            try {
+                consumer.close();
+            } catch (Exception e) {
+                log.warn("Ошибка при закрытии консьюмера событий хабов", e);
+            }
+        }
+    }
+
+    void wakeup() {
+        consumer.wakeup();
+    }
+
+    boolean failed() {
+        return failed;
+    }
+
+    private KafkaConsumer<String, HubEventAvro> createConsumer() {
+        Properties config = new Properties();
+        AggregatorProperties.Kafka kafka = properties.getKafka();
+
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, HubEventDeserializer.class.getName());
+        config.put(ConsumerConfig.CLIENT_ID_CONFIG, kafka.getGroupId() + "-hub-events");
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+        return new KafkaConsumer<>(config);
+    }
+}
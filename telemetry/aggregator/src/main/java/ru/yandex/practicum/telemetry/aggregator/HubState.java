@@ -0,0 +1,261 @@
+package ru.yandex.practicum.telemetry.aggregator;
+
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotDeltaAvro;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ru.yandex.practicum.telemetry.aggregator.SensorPayloadCodec.VALUES_PER_SENSOR;
+
+final class HubState {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final String hubId;
+    private final BitSet pending = new BitSet();
+    private final int[] scratch = new int[VALUES_PER_SENSOR];
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+    private String[] sensorIds = new String[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY * VALUES_PER_SENSOR];
+    private int size;
+    private long timestamp;
+    private long sequence;
+    private volatile long lastActivityMillis;
+    private int partition = -1;
+    private boolean fullRequired;
+    private boolean dirty;
+
+    HubState(String hubId, long timestamp) {
+        this.hubId = hubId;
+        this.timestamp = timestamp;
+    }
+
+    static HubState fromSnapshot(SensorsSnapshotAvro snapshot, int partition, long sequence) {
+        HubState state = new HubState(snapshot.getHubId(), snapshot.getTimestamp().toEpochMilli());
+        if (snapshot.getSensorsState() != null) {
+            snapshot.getSensorsState().forEach((sensorId, sensorState) ->
+                    state.apply(sensorId, sensorState.getTimestamp().toEpochMilli(), sensorState.getData()));
+        }
+        state.timestamp = snapshot.getTimestamp().toEpochMilli();
+        state.sequence = sequence;
+        state.partition = partition;
+        state.lastActivityMillis = System.currentTimeMillis();
+        state.pending.clear();
+        return state;
+    }
+
+    boolean apply(String sensorId, long eventTimestamp, Object payload) {
+        byte type = SensorPayloadCodec.encode(payload, scratch, 0);
+
+        int slot = slotOf(sensorId);
+        if (slot >= 0) {
+            if (eventTimestamp < timestamps[slot]) {
+                return false;
+            }
+            int offset = slot * VALUES_PER_SENSOR;
+            if (types[slot] == type
+                    && Arrays.equals(values, offset, offset + VALUES_PER_SENSOR, scratch, 0, VALUES_PER_SENSOR)) {
+                return false;
+            }
+        } else {
+            slot = allocate(sensorId);
+        }
+
+        timestamps[slot] = eventTimestamp;
+        types[slot] = type;
+        System.arraycopy(scratch, 0, values, slot * VALUES_PER_SENSOR, VALUES_PER_SENSOR);
+        timestamp = eventTimestamp;
+        pending.set(slot);
+        return true;
+    }
+
+    boolean remove(String sensorId) {
+        int slot = slotOf(sensorId);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        rebuildIndex();
+        fullRequired = true;
+        dirty = true;
+        return true;
+    }
+
+    int expireSensors(long cutoffMillis) {
+        int expired = 0;
+        for (int slot = size - 1; slot >= 0; slot--) {
+            if (timestamps[slot] < cutoffMillis) {
+                removeSlot(slot);
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            rebuildIndex();
+            fullRequired = true;
+            dirty = true;
+        }
+        return expired;
+    }
+
+    void touch(long nowMillis, int sourcePartition) {
+        lastActivityMillis = nowMillis;
+        if (sourcePartition >= 0) {
+            partition = sourcePartition;
+        }
+    }
+
+    long lastActivityMillis() {
+        return lastActivityMillis;
+    }
+
+    int partition() {
+        return partition;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean hasPending() {
+        return dirty || !pending.isEmpty();
+    }
+
+    int[] drainPending() {
+        int[] changed = pending.stream().toArray();
+        pending.clear();
+        dirty = false;
+        return changed;
+    }
+
+    boolean takeFullRequired() {
+        boolean required = fullRequired;
+        fullRequired = false;
+        return required;
+    }
+
+    void requireFull() {
+        fullRequired = true;
+        dirty = true;
+    }
+
+    long nextSequence() {
+        return ++sequence;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    List<String> sensorIds(int[] slotIndexes) {
+        List<String> ids = new ArrayList<>(slotIndexes.length);
+        for (int slot : slotIndexes) {
+            ids.add(sensorIds[slot]);
+        }
+        return ids;
+    }
+
+    SensorsSnapshotAvro toSnapshot() {
+        Map<String, SensorStateAvro> sensorsState = new HashMap<>(Math.max(4, size * 4 / 3 + 1));
+        for (int slot = 0; slot < size; slot++) {
+            sensorsState.put(sensorIds[slot], sensorState(slot));
+        }
+        return SensorsSnapshotAvro.newBuilder()
+                .setHubId(hubId)
+                .setTimestamp(Instant.ofEpochMilli(timestamp))
+                .setSensorsState(sensorsState)
+                .build();
+    }
+
+    SensorsSnapshotDeltaAvro toDelta(int[] slotIndexes, long deltaSequence) {
+        Map<String, SensorStateAvro> sensorsState = new HashMap<>(Math.max(4, slotIndexes.length * 4 / 3 + 1));
+        for (int slot : slotIndexes) {
+            sensorsState.put(sensorIds[slot], sensorState(slot));
+        }
+        return SensorsSnapshotDeltaAvro.newBuilder()
+                .setHubId(hubId)
+                .setSequence(deltaSequence)
+                .setTimestamp(Instant.ofEpochMilli(timestamp))
+                .setSensorsState(sensorsState)
+                .build();
+    }
+
+    private SensorStateAvro sensorState(int slot) {
+        return SensorStateAvro.newBuilder()
+                .setTimestamp(Instant.ofEpochMilli(timestamps[slot]))
+                .setData(SensorPayloadCodec.decode(types[slot], values, slot * VALUES_PER_SENSOR))
+                .build();
+    }
+
+    private void removeSlot(int slot) {
+        int last = size - 1;
+        if (slot != last) {
+            sensorIds[slot] = sensorIds[last];
+            timestamps[slot] = timestamps[last];
+            types[slot] = types[last];
+            System.arraycopy(values, last * VALUES_PER_SENSOR, values, slot * VALUES_PER_SENSOR, VALUES_PER_SENSOR);
+            pending.set(slot, pending.get(last));
+        }
+        pending.clear(last);
+        sensorIds[last] = null;
+        size = last;
+    }
+
+    private void rebuildIndex() {
+        Arrays.fill(index, 0);
+        for (int slot = 0; slot < size; slot++) {
+            indexSlot(slot);
+        }
+    }
+
+    private int slotOf(String sensorId) {
+        int mask = index.length - 1;
+        for (int i = bucket(sensorId, mask); ; i = (i + 1) & mask) {
+            int entry = index[i];
+            if (entry == 0) {
+                return -1;
+            }
+            if (sensorIds[entry - 1].equals(sensorId)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int allocate(String sensorId) {
+        if (size == sensorIds.length) {
+            int capacity = size * 2;
+            sensorIds = Arrays.copyOf(sensorIds, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity * VALUES_PER_SENSOR);
+            index = new int[capacity * 2];
+            rebuildIndex();
+        }
+        int slot = size++;
+        sensorIds[slot] = sensorId;
+        indexSlot(slot);
+        return slot;
+    }
+
+    private void indexSlot(int slot) {
+        int mask = index.length - 1;
+        int i = bucket(sensorIds[slot], mask);
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+
+    private static int bucket(String sensorId, int mask) {
+        int hash = sensorId.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
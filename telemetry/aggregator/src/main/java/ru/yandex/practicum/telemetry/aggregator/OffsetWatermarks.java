@@ -0,0 +1,92 @@
+package ru.yandex.practicum.telemetry.aggregator;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+final class OffsetWatermarks {
+
+    private final ConcurrentMap<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TopicPartition, Exception> failures = new ConcurrentHashMap<>();
+
+    void beginSend(TopicPartition partition, long offset) {
+        state(partition).pending.add(offset);
+    }
+
+    void completeSend(TopicPartition partition, long offset, Exception exception) {
+        if (exception != null) {
+            failures.putIfAbsent(partition, exception);
+            return;
+        }
+        PartitionState state = partitions.get(partition);
+        if (state != null) {
+            state.pending.remove(offset);
+        }
+    }
+
+    void consumed(TopicPartition partition, long offset) {
+        state(partition).consumedUpTo = offset + 1;
+    }
+
+    Map<TopicPartition, OffsetAndMetadata> committable() {
+        return committable(partitions.keySet());
+    }
+
+    Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> selected) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : selected) {
+            PartitionState state = partitions.get(partition);
+            if (state == null) {
+                continue;
+            }
+            long watermark = state.watermark();
+            if (watermark > state.committed) {
+                offsets.put(partition, new OffsetAndMetadata(watermark));
+            }
+        }
+        return offsets;
+    }
+
+    void markCommitted(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        offsets.forEach((partition, offset) -> {
+            PartitionState state = partitions.get(partition);
+            if (state != null) {
+                state.committed = Math.max(state.committed, offset.offset());
+            }
+        });
+    }
+
+    void remove(Collection<TopicPartition> revoked) {
+        revoked.forEach(partition -> {
+            partitions.remove(partition);
+            failures.remove(partition);
+        });
+    }
+
+    Map<TopicPartition, Exception> failures() {
+        return Map.copyOf(failures);
+    }
+
+    private PartitionState state(TopicPartition partition) {
+        return partitions.computeIfAbsent(partition, ignored -> new PartitionState());
+    }
+
+    private static final class PartitionState {
+
+        private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+        private volatile long consumedUpTo = -1;
+        private long committed = -1;
+
+        private long watermark() {
+            Iterator<Long> oldest = pending.iterator();
+            return oldest.hasNext() ? Math.min(oldest.next(), consumedUpTo) : consumedUpTo;
+        }
+    }
+}
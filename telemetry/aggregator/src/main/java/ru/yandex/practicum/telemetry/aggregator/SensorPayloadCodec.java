@@ -0,0 +1,86 @@
+package ru.yandex.practicum.telemetry.aggregator;
+
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+
+final class SensorPayloadCodec {
+
+    static final int VALUES_PER_SENSOR = 3;
+
+    private static final byte CLIMATE = 1;
+    private static final byte LIGHT = 2;
+    private static final byte MOTION = 3;
+    private static final byte SWITCH = 4;
+    private static final byte TEMPERATURE = 5;
+
+    private SensorPayloadCodec() {
+        throw new AssertionError("Утилитарный класс не должен быть инициализирован");
+    }
+
+    static byte encode(Object payload, int[] values, int offset) {
+        switch (payload) {
+            case ClimateSensorAvro climate -> {
+                values[offset] = climate.getTemperatureC();
+                values[offset + 1] = climate.getHumidity();
+                values[offset + 2] = climate.getCo2Level();
+                return CLIMATE;
+            }
+            case LightSensorAvro light -> {
+                values[offset] = light.getLinkQuality();
+                values[offset + 1] = light.getLuminosity();
+                values[offset + 2] = 0;
+                return LIGHT;
+            }
+            case MotionSensorAvro motion -> {
+                values[offset] = motion.getLinkQuality();
+                values[offset + 1] = motion.getMotion() ? 1 : 0;
+                values[offset + 2] = motion.getVoltage();
+                return MOTION;
+            }
+            case SwitchSensorAvro sw -> {
+                values[offset] = sw.getState() ? 1 : 0;
+                values[offset + 1] = 0;
+                values[offset + 2] = 0;
+                return SWITCH;
+            }
+            case TemperatureSensorAvro temperature -> {
+                values[offset] = temperature.getTemperatureC();
+                values[offset + 1] = temperature.getTemperatureF();
+                values[offset + 2] = 0;
+                return TEMPERATURE;
+            }
+            default -> throw new IllegalArgumentException(
+                    "Неизвестный тип данных датчика: " + payload.getClass().getName());
+        }
+    }
+
+    static Object decode(byte type, int[] values, int offset) {
+        return switch (type) {
+            case CLIMATE -> ClimateSensorAvro.newBuilder()
+                    .setTemperatureC(values[offset])
+                    .setHumidity(values[offset + 1])
+                    .setCo2Level(values[offset + 2])
+                    .build();
+            case LIGHT -> LightSensorAvro.newBuilder()
+                    .setLinkQuality(values[offset])
+                    .setLuminosity(values[offset + 1])
+                    .build();
+            case MOTION -> MotionSensorAvro.newBuilder()
+                    .setLinkQuality(values[offset])
+                    .setMotion(values[offset + 1] != 0)
+                    .setVoltage(values[offset + 2])
+                    .build();
+            case SWITCH -> SwitchSensorAvro.newBuilder()
+                    .setState(values[offset] != 0)
+                    .build();
+            case TEMPERATURE -> TemperatureSensorAvro.newBuilder()
+                    .setTemperatureC(values[offset])
+                    .setTemperatureF(values[offset + 1])
+                    .build();
+            default -> throw new IllegalStateException("Неизвестный код типа датчика: " + type);
+        };
+    }
+}
@@ -1,69 +1,268 @@
 package ru.yandex.practicum.telemetry.aggregator;
 
+import org.apache.avro.specific.SpecificRecordBase;
 import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
-import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties.SnapshotMode;
+import ru.yandex.practicum.telemetry.aggregator.state.StoredHubState;
 
-import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class SensorsSnapshotAggregator {
 
-    private final ConcurrentMap<String, SensorsSnapshotAvro> snapshots = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, HubState> hubs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> dirtyHubs = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweepAt = new AtomicLong(System.currentTimeMillis());
+    private final SnapshotMode mode;
+    private final int fullSnapshotInterval;
+    private final boolean materializeState;
+    private final AggregatorProperties.Eviction eviction;
 
-    public Optional<SensorsSnapshotAvro> updateState(SensorEventAvro event) {
-        if (!isEventValid(event)) {
+    public SensorsSnapshotAggregator() {
+        this(SnapshotMode.FULL, 1, false);
+    }
+
+    public SensorsSnapshotAggregator(SnapshotMode mode, int fullSnapshotInterval, boolean materializeState) {
+        this(mode, fullSnapshotInterval, materializeState, new AggregatorProperties.Eviction());
+    }
+
+    public SensorsSnapshotAggregator(SnapshotMode mode,
+                                     int fullSnapshotInterval,
+                                     boolean materializeState,
+                                     AggregatorProperties.Eviction eviction) {
+        this.mode = Objects.requireNonNull(mode, "Требуется режим формирования снапшотов");
+        this.fullSnapshotInterval = Math.max(fullSnapshotInterval, 1);
+        this.materializeState = materializeState;
+        this.eviction = Objects.requireNonNull(eviction, "Требуются настройки вытеснения состояния");
+    }
+
+    public Optional<SnapshotUpdate> updateState(SensorEventAvro event) {
+        if (!applyEvent(event)) {
             return Optional.empty();
         }
+        return flush(event.getHubId());
+    }
 
-        final String hubId = event.getHubId();
-        final String sensorId = event.getId();
-        final Instant eventTimestamp = event.getTimestamp();
-        final Object payload = event.getPayload();
+    public boolean applyEvent(SensorEventAvro event) {
+        return applyEvent(event, -1);
+    }
 
-        AtomicReference<SensorsSnapshotAvro> updatedSnapshot = new AtomicReference<>();
+    public boolean applyEvent(SensorEventAvro event, int partition) {
+        if (!isEventValid(event)) {
+            return false;
+        }
+
+        final long eventTimestamp = event.getTimestamp().toEpochMilli();
+        final long now = System.currentTimeMillis();
+        AtomicBoolean changed = new AtomicBoolean();
+
+        hubs.compute(event.getHubId(), (hubId, existingState) -> {
+            HubState state = existingState != null ? existingState : new HubState(hubId, eventTimestamp);
+            state.touch(now, partition);
+            changed.set(state.apply(event.getId(), eventTimestamp, event.getPayload()));
+            return state;
+        });
+
+        return changed.get();
+    }
 
-        snapshots.compute(hubId, (id, existingSnapshot) -> {
-            SensorsSnapshotAvro snapshot = existingSnapshot != null
-                    ? existingSnapshot
-                    : createSnapshot(hubId, eventTimestamp);
+    public boolean removeSensor(String hubId, String sensorId) {
+        AtomicBoolean removed = new AtomicBoolean();
 
-            Map<String, SensorStateAvro> sensorsState = snapshot.getSensorsState();
-            if (sensorsState == null) {
-                sensorsState = new HashMap<>();
-                snapshot.setSensorsState(sensorsState);
+        hubs.computeIfPresent(hubId, (id, state) -> {
+            if (state.remove(sensorId)) {
+                removed.set(true);
+                if (state.partition() >= 0) {
+                    dirtyHubs.put(id, state.partition());
+                }
             }
+            return state;
+        });
+
+        return removed.get();
+    }
+
+    public List<String> drainDirtyHubs(int partition) {
+        if (dirtyHubs.isEmpty()) {
+            return List.of();
+        }
+        List<String> drained = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : dirtyHubs.entrySet()) {
+            if (entry.getValue() == partition && dirtyHubs.remove(entry.getKey(), partition)) {
+                drained.add(entry.getKey());
+            }
+        }
+        return drained;
+    }
 
-            SensorStateAvro currentState = sensorsState.get(sensorId);
-            if (currentState != null) {
-                Instant currentTimestamp = currentState.getTimestamp();
-                if (currentTimestamp != null && eventTimestamp.isBefore(currentTimestamp)) {
-                    return snapshot;
+    public int evictExpired() {
+        long now = System.currentTimeMillis();
+        long lastSweep = lastSweepAt.get();
+        if (now - lastSweep < eviction.getSweepIntervalMs() || !lastSweepAt.compareAndSet(lastSweep, now)) {
+            return 0;
+        }
+
+        long hubTtlMs = eviction.getHubTtlMs();
+        long sensorTtlMs = eviction.getSensorTtlMs();
+        AtomicInteger evicted = new AtomicInteger();
+        if (hubTtlMs > 0 || sensorTtlMs > 0) {
+            for (String hubId : hubs.keySet()) {
+                hubs.computeIfPresent(hubId, (id, state) -> {
+                    if (hubTtlMs > 0 && !state.hasPending() && now - state.lastActivityMillis() > hubTtlMs) {
+                        evicted.incrementAndGet();
+                        return null;
+                    }
+                    if (sensorTtlMs > 0 && state.expireSensors(now - sensorTtlMs) > 0 && state.partition() >= 0) {
+                        dirtyHubs.put(id, state.partition());
+                    }
+                    return state;
+                });
+            }
+        }
+
+        int maxHubs = eviction.getMaxHubs();
+        if (maxHubs > 0 && hubs.size() > maxHubs) {
+            List<Map.Entry<String, Long>> byActivity = new ArrayList<>(hubs.size());
+            hubs.forEach((hubId, state) -> byActivity.add(Map.entry(hubId, state.lastActivityMillis())));
+            byActivity.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+            for (Map.Entry<String, Long> entry : byActivity) {
+                if (hubs.size() <= maxHubs) {
+                    break;
                 }
-                if (Objects.equals(currentState.getData(), payload)) {
-                    return snapshot;
+                hubs.computeIfPresent(entry.getKey(), (id, state) -> {
+                    if (state.hasPending()) {
+                        return state;
+                    }
+                    evicted.incrementAndGet();
+                    return null;
+                });
+            }
+        }
+
+        if (evicted.get() > 0) {
+            dirtyHubs.keySet().removeIf(hubId -> !hubs.containsKey(hubId));
+        }
+        return evicted.get();
+    }
+
+    public int discardPartitions(Collection<Integer> partitions) {
+        AtomicInteger discarded = new AtomicInteger();
+        for (String hubId : hubs.keySet()) {
+            hubs.computeIfPresent(hubId, (id, state) -> {
+                if (!partitions.contains(state.partition())) {
+                    return state;
+                }
+                dirtyHubs.remove(id);
+                discarded.incrementAndGet();
+                return null;
+            });
+        }
+        return discarded.get();
+    }
+
+    public int requestFullSnapshots(Collection<Integer> partitions) {
+        AtomicInteger requested = new AtomicInteger();
+        for (String hubId : hubs.keySet()) {
+            hubs.computeIfPresent(hubId, (id, state) -> {
+                if (partitions.contains(state.partition())) {
+                    state.requireFull();
+                    dirtyHubs.put(id, state.partition());
+                    requested.incrementAndGet();
+                }
+                return state;
+            });
+        }
+        return requested.get();
+    }
+
+    public boolean contains(String hubId) {
+        return hubs.containsKey(hubId);
+    }
+
+    public int hubCount() {
+        return hubs.size();
+    }
+
+    public Optional<SnapshotUpdate> flush(String hubId) {
+        AtomicReference<SnapshotUpdate> update = new AtomicReference<>();
+
+        hubs.computeIfPresent(hubId, (id, state) -> {
+            if (!state.hasPending()) {
+                return state;
+            }
+            long sequence = state.nextSequence();
+            int[] changedSlots = state.drainPending();
+
+            SpecificRecordBase payload;
+            SensorsSnapshotAvro snapshot = null;
+            boolean fullRequired = state.takeFullRequired();
+            if (fullRequired || mode == SnapshotMode.FULL || (sequence - 1) % fullSnapshotInterval == 0) {
+                snapshot = state.toSnapshot();
+                payload = snapshot;
+            } else {
+                payload = state.toDelta(changedSlots, sequence);
+                if (materializeState) {
+                    snapshot = state.toSnapshot();
                 }
             }
+            update.set(new SnapshotUpdate(id, sequence, state.sensorIds(changedSlots), payload, snapshot));
+            return state;
+        });
+
+        return Optional.ofNullable(update.get());
+    }
+
+    public boolean restore(StoredHubState stored) {
+        AtomicBoolean restored = new AtomicBoolean();
+
+        hubs.compute(stored.hubId(), (id, existingState) -> {
+            if (existingState != null && existingState.sequence() >= stored.sequence()) {
+                return existingState;
+            }
+            if (existingState == null && isExpired(stored.snapshot())) {
+                return null;
+            }
+            restored.set(true);
+            return HubState.fromSnapshot(stored.snapshot(), stored.partition(), stored.sequence());
+        });
 
-            SensorStateAvro newState = SensorStateAvro.newBuilder()
-                    .setTimestamp(eventTimestamp)
-                    .setData(payload)
-                    .build();
+        return restored.get();
+    }
 
-            sensorsState.put(sensorId, newState);
-            snapshot.setTimestamp(eventTimestamp);
+    public boolean reload(StoredHubState stored) {
+        AtomicBoolean reloaded = new AtomicBoolean();
 
-            updatedSnapshot.set(SensorsSnapshotAvro.newBuilder(snapshot).build());
-            return snapshot;
+        hubs.compute(stored.hubId(), (id, existingState) -> {
+            if (existingState != null) {
+                return existingState;
+            }
+            HubState state = HubState.fromSnapshot(stored.snapshot(), stored.partition(), stored.sequence());
+            state.requireFull();
+            dirtyHubs.put(id, stored.partition());
+            reloaded.set(true);
+            return state;
         });
 
-        return Optional.ofNullable(updatedSnapshot.get());
+        return reloaded.get();
+    }
+
+    private boolean isExpired(SensorsSnapshotAvro snapshot) {
+        long hubTtlMs = eviction.getHubTtlMs();
+        return hubTtlMs > 0 && snapshot.getTimestamp() != null
+                && System.currentTimeMillis() - snapshot.getTimestamp().toEpochMilli() > hubTtlMs;
     }
 
     private static boolean isEventValid(SensorEventAvro event) {
@@ -73,12 +272,4 @@ public class SensorsSnapshotAggregator {
                 && event.getTimestamp() != null
                 && event.getPayload() != null;
     }
-
-    private static SensorsSnapshotAvro createSnapshot(String hubId, Instant timestamp) {
-        return SensorsSnapshotAvro.newBuilder()
-                .setHubId(hubId)
-                .setTimestamp(timestamp)
-                .setSensorsState(new HashMap<>())
-                .build();
-    }
-}
\ No newline at end of file
+}
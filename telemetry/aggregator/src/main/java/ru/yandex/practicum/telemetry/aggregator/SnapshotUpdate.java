@@ -0,0 +1,20 @@
+package ru.yandex.practicum.telemetry.aggregator;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotDeltaAvro;
+
+import java.util.List;
+
+public record SnapshotUpdate(
+        String hubId,
+        long sequence,
+        List<String> changedSensorIds,
+        SpecificRecordBase payload,
+        SensorsSnapshotAvro state
+) {
+
+    public boolean isDelta() {
+        return payload instanceof SensorsSnapshotDeltaAvro;
+    }
+}
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.telemetry.aggregator.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import ru.yandex.practicum.telemetry.aggregator.SensorsSnapshotAggregator;
@@ -8,7 +10,16 @@ import ru.yandex.practicum.telemetry.aggregator.SensorsSnapshotAggregator;
 public class AggregationConfiguration {
 
     @Bean
-    public SensorsSnapshotAggregator sensorsSnapshotAggregator() {
-        return new SensorsSnapshotAggregator();
+    public SensorsSnapshotAggregator sensorsSnapshotAggregator(AggregatorProperties properties,
+                                                               MeterRegistry meterRegistry) {
+        AggregatorProperties.Snapshot snapshot = properties.getSnapshot();
+        SensorsSnapshotAggregator aggregator = new SensorsSnapshotAggregator(snapshot.getMode(),
+                snapshot.getFullSnapshotInterval(),
+                properties.getState().getStore() == AggregatorProperties.StateStoreType.CHANGELOG,
+                properties.getEviction());
+        Gauge.builder("aggregator.hubs", aggregator, SensorsSnapshotAggregator::hubCount)
+                .description("Количество хабов, состояние которых хранится в памяти агрегатора")
+                .register(meterRegistry);
+        return aggregator;
     }
 }
\ No newline at end of file
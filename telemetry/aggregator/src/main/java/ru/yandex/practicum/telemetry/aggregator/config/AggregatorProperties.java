@@ -9,12 +9,70 @@ public class AggregatorProperties {
 
     private Kafka kafka = new Kafka();
     private long pollTimeoutMs = 100;
+    private int workers = 1;
+    private Snapshot snapshot = new Snapshot();
+    private Commit commit = new Commit();
+    private State state = new State();
+    private Eviction eviction = new Eviction();
 
     @Data
     public static class Kafka {
         private String bootstrapServers;
         private String sensorsTopic;
         private String snapshotsTopic;
+        private String hubsTopic;
         private String groupId = "telemetry-aggregator";
     }
+
+    @Data
+    public static class Snapshot {
+        private SnapshotMode mode = SnapshotMode.FULL;
+        private int fullSnapshotInterval = 100;
+        private CoalesceMode coalesce = CoalesceMode.NONE;
+        private long coalesceWindowMs = 20;
+    }
+
+    @Data
+    public static class Commit {
+        private CommitMode mode = CommitMode.SYNC;
+        private long transactionMaxMs = 100;
+        private String transactionalIdPrefix = "telemetry-aggregator";
+    }
+
+    @Data
+    public static class State {
+        private StateStoreType store = StateStoreType.MEMORY;
+        private String changelogTopic = "telemetry.aggregator.state.v1";
+        private long restoreTimeoutMs = 60000;
+    }
+
+    @Data
+    public static class Eviction {
+        private long hubTtlMs;
+        private long sensorTtlMs;
+        private int maxHubs;
+        private long sweepIntervalMs = 60000;
+    }
+
+    public enum CommitMode {
+        SYNC,
+        PIPELINED,
+        TRANSACTIONAL
+    }
+
+    public enum CoalesceMode {
+        NONE,
+        POLL,
+        WINDOW
+    }
+
+    public enum StateStoreType {
+        MEMORY,
+        CHANGELOG
+    }
+
+    public enum SnapshotMode {
+        FULL,
+        DELTA
+    }
 }
\ No newline at end of file
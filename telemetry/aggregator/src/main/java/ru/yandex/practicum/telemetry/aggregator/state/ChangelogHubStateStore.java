@@ -0,0 +1,215 @@
+package ru.yandex.practicum.telemetry.aggregator.state;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotDeserializer;
+import ru.yandex.practicum.kafka.header.SnapshotHeaders;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+@Slf4j
+public class ChangelogHubStateStore implements HubStateStore {
+
+    private static final Duration RESTORE_POLL_TIMEOUT = Duration.ofMillis(100);
+
+    private final AggregatorProperties properties;
+    private final Producer<String, SpecificRecordBase> producer;
+    private final String clientId;
+    private final String topic;
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+    private KafkaConsumer<String, SensorsSnapshotAvro> restoreConsumer;
+
+    public ChangelogHubStateStore(AggregatorProperties properties,
+                                  Producer<String, SpecificRecordBase> producer,
+                                  String clientId) {
+        this.properties = properties;
+        this.producer = producer;
+        this.clientId = clientId;
+        this.topic = properties.getState().getChangelogTopic();
+    }
+
+    public static void ensureTopic(AggregatorProperties properties) {
+        AggregatorProperties.Kafka kafka = properties.getKafka();
+        String changelogTopic = properties.getState().getChangelogTopic();
+
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+            int partitions = admin.describeTopics(List.of(kafka.getSensorsTopic()))
+                    .allTopicNames().get()
+                    .get(kafka.getSensorsTopic())
+                    .partitions().size();
+            NewTopic newTopic = new NewTopic(changelogTopic, Optional.of(partitions), Optional.empty())
+                    .configs(Map.of(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT));
+            admin.createTopics(List.of(newTopic)).all().get();
+            log.info("Создан топик состояния агрегатора {} с {} партициями", changelogTopic, partitions);
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TopicExistsException)) {
+                throw new IllegalStateException("Не удалось подготовить топик состояния " + changelogTopic, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Подготовка топика состояния прервана", e);
+        }
+    }
+
+    @Override
+    public void save(StoredHubState state, Consumer<Exception> completion) {
+        ProducerRecord<String, SpecificRecordBase> record =
+                new ProducerRecord<>(topic, state.partition(), state.hubId(), state.snapshot());
+        SnapshotHeaders.setSequence(record.headers(), state.sequence());
+        producer.send(record, (metadata, exception) -> {
+            if (exception == null && metadata != null) {
+                offsets.merge(state.hubId(), metadata.offset(), Math::max);
+            }
+            completion.accept(exception);
+        });
+    }
+
+    @Override
+    public int restore(Collection<Integer> partitions, Consumer<StoredHubState> loader) {
+        if (partitions.isEmpty()) {
+            return 0;
+        }
+
+        List<TopicPartition> changelogPartitions = partitions.stream()
+                .map(partition -> new TopicPartition(topic, partition))
+                .toList();
+        KafkaConsumer<String, SensorsSnapshotAvro> consumer = restoreConsumer();
+        consumer.assign(changelogPartitions);
+        consumer.seekToBeginning(changelogPartitions);
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(changelogPartitions);
+
+        long deadline = restoreDeadline();
+        Map<String, ConsumerRecord<String, SensorsSnapshotAvro>> latest = new LinkedHashMap<>();
+        try {
+            while (!reachedEnd(consumer, endOffsets)) {
+                checkDeadline(deadline);
+                for (ConsumerRecord<String, SensorsSnapshotAvro> record : consumer.poll(RESTORE_POLL_TIMEOUT)) {
+                    if (record.key() == null) {
+                        continue;
+                    }
+                    latest.remove(record.key());
+                    if (record.value() != null) {
+                        latest.put(record.key(), record);
+                    }
+                }
+            }
+        } finally {
+            consumer.unsubscribe();
+        }
+
+        for (ConsumerRecord<String, SensorsSnapshotAvro> record : latest.values()) {
+            offsets.put(record.key(), record.offset());
+            loader.accept(toStoredState(record));
+        }
+        return latest.size();
+    }
+
+    @Override
+    public Optional<StoredHubState> load(int partition, String hubId) {
+        Long offset = offsets.get(hubId);
+        if (offset == null) {
+            return Optional.empty();
+        }
+
+        TopicPartition changelogPartition = new TopicPartition(topic, partition);
+        KafkaConsumer<String, SensorsSnapshotAvro> consumer = restoreConsumer();
+        consumer.assign(List.of(changelogPartition));
+        consumer.seek(changelogPartition, offset);
+
+        long deadline = restoreDeadline();
+        try {
+            while (consumer.position(changelogPartition) <= offset) {
+                checkDeadline(deadline);
+                for (ConsumerRecord<String, SensorsSnapshotAvro> record : consumer.poll(RESTORE_POLL_TIMEOUT)) {
+                    if (record.offset() == offset && hubId.equals(record.key()) && record.value() != null) {
+                        return Optional.of(toStoredState(record));
+                    }
+                }
+            }
+        } finally {
+            consumer.unsubscribe();
+        }
+        log.warn("event=hub-state-missing hubId={} partition={} offset={}", hubId, partition, offset);
+        offsets.remove(hubId, offset);
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (restoreConsumer != null) {
+            try {
+                restoreConsumer.close();
+            } catch (Exception e) {
+                log.warn("Ошибка при закрытии консьюмера восстановления состояния {}", clientId, e);
+            }
+        }
+    }
+
+    private long restoreDeadline() {
+        return System.nanoTime() + Duration.ofMillis(properties.getState().getRestoreTimeoutMs()).toNanos();
+    }
+
+    private void checkDeadline(long deadline) {
+        if (System.nanoTime() > deadline) {
+            throw new IllegalStateException("Чтение состояния из топика " + topic
+                    + " не завершилось за " + properties.getState().getRestoreTimeoutMs() + " мс");
+        }
+    }
+
+    private static StoredHubState toStoredState(ConsumerRecord<String, SensorsSnapshotAvro> record) {
+        long sequence = SnapshotHeaders.sequence(record.headers()).orElse(0);
+        return new StoredHubState(record.key(), record.partition(), record.value(), sequence);
+    }
+
+    private static boolean reachedEnd(KafkaConsumer<String, SensorsSnapshotAvro> consumer,
+                                      Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            if (consumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private KafkaConsumer<String, SensorsSnapshotAvro> restoreConsumer() {
+        if (restoreConsumer == null) {
+            Properties config = new Properties();
+            config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.getKafka().getBootstrapServers());
+            config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+            config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, SensorsSnapshotDeserializer.class.getName());
+            config.put(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
+            config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+            config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+            restoreConsumer = new KafkaConsumer<>(config);
+        }
+        return restoreConsumer;
+    }
+}
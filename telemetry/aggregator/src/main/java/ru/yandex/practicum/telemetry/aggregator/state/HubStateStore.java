@@ -0,0 +1,24 @@
+package ru.yandex.practicum.telemetry.aggregator.state;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface HubStateStore extends AutoCloseable {
+
+    void save(StoredHubState state, Consumer<Exception> completion);
+
+    int restore(Collection<Integer> partitions, Consumer<StoredHubState> loader);
+
+    default Optional<StoredHubState> load(int partition, String hubId) {
+        return Optional.empty();
+    }
+
+    default boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    default void close() {
+    }
+}
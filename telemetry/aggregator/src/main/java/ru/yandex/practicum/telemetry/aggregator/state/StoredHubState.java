@@ -0,0 +1,6 @@
+package ru.yandex.practicum.telemetry.aggregator.state;
+
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+public record StoredHubState(String hubId, int partition, SensorsSnapshotAvro snapshot, long sequence) {
+}
@@ -7,6 +7,8 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.telemetry.analyzer.processor.HubEventProcessor;
 import ru.yandex.practicum.telemetry.analyzer.processor.SnapshotProcessor;
+import ru.yandex.practicum.telemetry.analyzer.storage.ScenarioIndex;
+import ru.yandex.practicum.telemetry.analyzer.storage.ScenarioStorage;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -17,11 +19,15 @@ public class AnalyzerRunner implements CommandLineRunner {
 
     private final HubEventProcessor hubEventProcessor;
     private final SnapshotProcessor snapshotProcessor;
+    private final ScenarioStorage scenarioStorage;
+    private final ScenarioIndex scenarioIndex;
     private Thread hubEventsThread;
     private final AtomicBoolean stopping = new AtomicBoolean(false);
 
     @Override
     public void run(String... args) {
+        scenarioIndex.rebuild(scenarioStorage.loadCompiledScenarios());
+
         hubEventsThread = new Thread(hubEventProcessor);
         hubEventsThread.setName("HubEventHandlerThread");
         hubEventsThread.start();
@@ -11,6 +11,9 @@ import java.util.Map;
 public class AnalyzerProperties {
 
     private Kafka kafka = new Kafka();
+    private Evaluation evaluation = new Evaluation();
+    private Dispatch dispatch = new Dispatch();
+    private Processing processing = new Processing();
 
     @Data
     public static class Kafka {
@@ -33,4 +36,42 @@ public class AnalyzerProperties {
         private boolean enableAutoCommit;
         private Map<String, Object> properties = new HashMap<>();
     }
+
+    @Data
+    public static class Evaluation {
+        private EvaluationMode mode = EvaluationMode.COMPILED;
+        private TriggerMode trigger = TriggerMode.EDGE;
+    }
+
+    @Data
+    public static class Processing {
+        private int workers;
+        private int maxInFlight = 1000;
+        private long drainTimeoutMs = 10000;
+        private long hubEventsWaitMs = 5000;
+        private long hubEventsClockSkewMs = 1000;
+        private long deltaStateTtlMs = 86400000;
+        private long deltaStateSweepIntervalMs = 60000;
+    }
+
+    @Data
+    public static class Dispatch {
+        private int queueCapacity = 256;
+        private int pauseThreshold = 192;
+        private int maxPending = 10000;
+        private long deadlineMs = 2000;
+        private int maxAttempts = 3;
+        private long initialBackoffMs = 100;
+        private long maxBackoffMs = 2000;
+    }
+
+    public enum EvaluationMode {
+        INTERPRETED,
+        COMPILED
+    }
+
+    public enum TriggerMode {
+        EDGE,
+        LEVEL
+    }
 }
\ No newline at end of file
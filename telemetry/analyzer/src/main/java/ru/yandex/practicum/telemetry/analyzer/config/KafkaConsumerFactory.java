@@ -30,6 +30,7 @@ public class KafkaConsumerFactory {
         config.put(ConsumerConfig.GROUP_ID_CONFIG, Objects.requireNonNullElse(consumerProps.getGroupId(), defaultGroupId));
         config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, consumerProps.isEnableAutoCommit());
         config.putIfAbsent(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
 
         config.putAll(consumerProps.getProperties());
 
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.telemetry.analyzer.model;
+
+public record CompiledAction(
+        String sensorId,
+        ActionType type,
+        Integer value
+) {
+
+    public static CompiledAction of(String sensorId, Action action) {
+        return new CompiledAction(
+                sensorId,
+                action.getType(),
+                action.getValue()
+        );
+    }
+}
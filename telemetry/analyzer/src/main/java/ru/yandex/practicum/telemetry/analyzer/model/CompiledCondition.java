@@ -0,0 +1,18 @@
+package ru.yandex.practicum.telemetry.analyzer.model;
+
+public record CompiledCondition(
+        String sensorId,
+        ConditionType type,
+        ConditionOperation operation,
+        Integer value
+) {
+
+    public static CompiledCondition of(String sensorId, Condition condition) {
+        return new CompiledCondition(
+                sensorId,
+                condition.getType(),
+                condition.getOperation(),
+                condition.getValue()
+        );
+    }
+}
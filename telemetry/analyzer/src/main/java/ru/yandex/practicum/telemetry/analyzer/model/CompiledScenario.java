@@ -0,0 +1,76 @@
+package ru.yandex.practicum.telemetry.analyzer.model;
+
+import ru.yandex.practicum.kafka.telemetry.event.DeviceActionAvro;
+import ru.yandex.practicum.kafka.telemetry.event.ScenarioAddedEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.ScenarioConditionAvro;
+import ru.yandex.practicum.telemetry.analyzer.util.ConditionValueMapper;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public record CompiledScenario(
+        String hubId,
+        String name,
+        List<CompiledCondition> conditions,
+        List<CompiledAction> actions,
+        ScenarioPredicate predicate
+) {
+
+    public CompiledScenario {
+        conditions = List.copyOf(conditions);
+        actions = List.copyOf(actions);
+    }
+
+    public CompiledScenario(String hubId, String name, List<CompiledCondition> conditions, List<CompiledAction> actions) {
+        this(hubId, name, conditions, actions, ScenarioPredicate.compile(conditions));
+    }
+
+    public static CompiledScenario from(Scenario scenario) {
+        List<CompiledCondition> conditions = scenario.getConditions().entrySet().stream()
+                .map(entry -> CompiledCondition.of(entry.getKey(), entry.getValue()))
+                .toList();
+        List<CompiledAction> actions = scenario.getActions().entrySet().stream()
+                .map(entry -> CompiledAction.of(entry.getKey(), entry.getValue()))
+                .toList();
+        return new CompiledScenario(scenario.getHubId(), scenario.getName(), conditions, actions);
+    }
+
+    public static CompiledScenario fromAvro(String hubId, ScenarioAddedEventAvro scenarioAvro) {
+        Map<String, CompiledCondition> conditions = new LinkedHashMap<>();
+        for (ScenarioConditionAvro conditionAvro : scenarioAvro.getConditions()) {
+            conditions.put(conditionAvro.getSensorId(), new CompiledCondition(
+                    conditionAvro.getSensorId(),
+                    ConditionType.fromAvro(conditionAvro.getType()),
+                    ConditionOperation.fromAvro(conditionAvro.getOperation()),
+                    ConditionValueMapper.fromAvro(conditionAvro)
+            ));
+        }
+
+        Map<String, CompiledAction> actions = new LinkedHashMap<>();
+        for (DeviceActionAvro actionAvro : scenarioAvro.getActions()) {
+            actions.put(actionAvro.getSensorId(), new CompiledAction(
+                    actionAvro.getSensorId(),
+                    ActionType.fromAvro(actionAvro.getType()),
+                    actionAvro.getValue()
+            ));
+        }
+
+        return new CompiledScenario(hubId, scenarioAvro.getName(),
+                List.copyOf(conditions.values()), List.copyOf(actions.values()));
+    }
+
+    public boolean references(String sensorId) {
+        return conditions.stream().anyMatch(condition -> condition.sensorId().equals(sensorId))
+                || actions.stream().anyMatch(action -> action.sensorId().equals(sensorId));
+    }
+
+    public CompiledScenario withoutSensor(String sensorId) {
+        return new CompiledScenario(
+                hubId,
+                name,
+                conditions.stream().filter(condition -> !condition.sensorId().equals(sensorId)).toList(),
+                actions.stream().filter(action -> !action.sensorId().equals(sensorId)).toList()
+        );
+    }
+}
@@ -7,12 +7,12 @@ public record ScenarioActionDecision(
         Integer value
 ) {
 
-    public static ScenarioActionDecision of(String scenarioName, String sensorId, Action action) {
+    public static ScenarioActionDecision of(String scenarioName, CompiledAction action) {
         return new ScenarioActionDecision(
                 scenarioName,
-                sensorId,
-                action.getType(),
-                action.getValue()
+                action.sensorId(),
+                action.type(),
+                action.value()
         );
     }
 }
\ No newline at end of file
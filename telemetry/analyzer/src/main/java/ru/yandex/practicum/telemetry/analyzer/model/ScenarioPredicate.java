@@ -0,0 +1,132 @@
+package ru.yandex.practicum.telemetry.analyzer.model;
+
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ScenarioPredicate {
+
+    private static final int FIELD_MOTION = 0;
+    private static final int FIELD_LUMINOSITY = 1;
+    private static final int FIELD_SWITCH = 2;
+    private static final int FIELD_TEMPERATURE = 3;
+    private static final int FIELD_CO2LEVEL = 4;
+    private static final int FIELD_HUMIDITY = 5;
+
+    private static final int OP_EQUALS = 0;
+    private static final int OP_GREATER_THAN = 1;
+    private static final int OP_LOWER_THAN = 2;
+
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private final String[] sensorIds;
+    private final int[] slots;
+    private final int[] fields;
+    private final int[] opcodes;
+    private final int[] thresholds;
+    private final boolean satisfiable;
+
+    private ScenarioPredicate(String[] sensorIds, int[] slots, int[] fields, int[] opcodes,
+                              int[] thresholds, boolean satisfiable) {
+        this.sensorIds = sensorIds;
+        this.slots = slots;
+        this.fields = fields;
+        this.opcodes = opcodes;
+        this.thresholds = thresholds;
+        this.satisfiable = satisfiable;
+    }
+
+    public static ScenarioPredicate compile(List<CompiledCondition> conditions) {
+        int size = conditions.size();
+        Map<String, Integer> slotBySensor = new LinkedHashMap<>();
+        int[] slots = new int[size];
+        int[] fields = new int[size];
+        int[] opcodes = new int[size];
+        int[] thresholds = new int[size];
+        boolean satisfiable = true;
+
+        for (int i = 0; i < size; i++) {
+            CompiledCondition condition = conditions.get(i);
+            slots[i] = slotBySensor.computeIfAbsent(condition.sensorId(), id -> slotBySensor.size());
+            fields[i] = field(condition.type());
+            opcodes[i] = opcode(condition.operation());
+            if (condition.value() == null) {
+                satisfiable = false;
+            } else {
+                thresholds[i] = condition.value();
+            }
+        }
+
+        return new ScenarioPredicate(slotBySensor.keySet().toArray(String[]::new),
+                slots, fields, opcodes, thresholds, satisfiable);
+    }
+
+    public boolean test(Map<String, SensorStateAvro> states) {
+        if (!satisfiable) {
+            return false;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            SensorStateAvro state = states.get(sensorIds[slots[i]]);
+            if (state == null) {
+                return false;
+            }
+            long actual = extract(fields[i], state.getData());
+            if (actual == MISSING || !compare(opcodes[i], (int) actual, thresholds[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long extract(int field, Object data) {
+        return switch (field) {
+            case FIELD_MOTION -> data instanceof MotionSensorAvro motion ? (motion.getMotion() ? 1 : 0) : MISSING;
+            case FIELD_LUMINOSITY -> data instanceof LightSensorAvro light ? light.getLuminosity() : MISSING;
+            case FIELD_SWITCH -> data instanceof SwitchSensorAvro sw ? (sw.getState() ? 1 : 0) : MISSING;
+            case FIELD_TEMPERATURE -> {
+                if (data instanceof ClimateSensorAvro climate) {
+                    yield climate.getTemperatureC();
+                }
+                yield data instanceof TemperatureSensorAvro temperature ? temperature.getTemperatureC() : MISSING;
+            }
+            case FIELD_CO2LEVEL -> data instanceof ClimateSensorAvro climate ? climate.getCo2Level() : MISSING;
+            case FIELD_HUMIDITY -> data instanceof ClimateSensorAvro climate ? climate.getHumidity() : MISSING;
+            default -> MISSING;
+        };
+    }
+
+    private static boolean compare(int opcode, int actual, int expected) {
+        return switch (opcode) {
+            case OP_EQUALS -> actual == expected;
+            case OP_GREATER_THAN -> actual > expected;
+            case OP_LOWER_THAN -> actual < expected;
+            default -> false;
+        };
+    }
+
+    private static int field(ConditionType type) {
+        return switch (type) {
+            case MOTION -> FIELD_MOTION;
+            case LUMINOSITY -> FIELD_LUMINOSITY;
+            case SWITCH -> FIELD_SWITCH;
+            case TEMPERATURE -> FIELD_TEMPERATURE;
+            case CO2LEVEL -> FIELD_CO2LEVEL;
+            case HUMIDITY -> FIELD_HUMIDITY;
+        };
+    }
+
+    private static int opcode(ConditionOperation operation) {
+        return switch (operation) {
+            case EQUALS -> OP_EQUALS;
+            case GREATER_THAN -> OP_GREATER_THAN;
+            case LOWER_THAN -> OP_LOWER_THAN;
+        };
+    }
+}
@@ -5,7 +5,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.telemetry.analyzer.config.KafkaConsumerFactory;
 import ru.yandex.practicum.kafka.deserializer.HubEventDeserializer;
@@ -15,11 +17,16 @@ import ru.yandex.practicum.kafka.telemetry.event.HubEventAvro;
 import ru.yandex.practicum.kafka.telemetry.event.ScenarioAddedEventAvro;
 import ru.yandex.practicum.kafka.telemetry.event.ScenarioRemovedEventAvro;
 import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledScenario;
+import ru.yandex.practicum.telemetry.analyzer.service.ScenarioTriggerTracker;
+import ru.yandex.practicum.telemetry.analyzer.storage.HubEventWatermark;
+import ru.yandex.practicum.telemetry.analyzer.storage.ScenarioIndex;
 import ru.yandex.practicum.telemetry.analyzer.storage.ScenarioStorage;
 
 import java.time.Duration;
-import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
@@ -30,6 +37,9 @@ public class HubEventProcessor implements Runnable {
     private final AnalyzerProperties properties;
     private final KafkaConsumerFactory consumerFactory;
     private final ScenarioStorage storage;
+    private final ScenarioIndex scenarioIndex;
+    private final ScenarioTriggerTracker triggerTracker;
+    private final HubEventWatermark watermark;
     private final AtomicBoolean running = new AtomicBoolean(false);
 
     private KafkaConsumer<String, HubEventAvro> consumer;
@@ -47,20 +57,26 @@ public class HubEventProcessor implements Runnable {
 
         consumer = createConsumer();
         String topic = properties.getKafka().getTopics().getHubEvents();
-        consumer.subscribe(Collections.singletonList(topic));
-        log.info("HubEventProcessor подписан на топик {} (autoCommit={})",
-                topic, properties.getKafka().getHubEvents().isEnableAutoCommit());
+        List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+        consumer.assign(partitions);
+        log.info("HubEventProcessor читает все партиции топика {} (partitions={}, autoCommit={})",
+                topic, partitions.size(), properties.getKafka().getHubEvents().isEnableAutoCommit());
 
         try {
             Duration pollTimeout = Duration.ofMillis(
                     Math.max(properties.getKafka().getHubEvents().getPollTimeoutMs(), 100)
             );
             while (running.get()) {
+                long polledAt = System.currentTimeMillis();
                 ConsumerRecords<String, HubEventAvro> records = consumer.poll(pollTimeout);
-                if (records.isEmpty()) {
-                    continue;
+                if (!records.isEmpty()) {
+                    processRecords(records);
+                }
+                if (isCaughtUp()) {
+                    watermark.advance(polledAt);
                 }
-                processRecords(records);
             }
         } catch (WakeupException e) {
             if (running.get()) {
@@ -85,6 +101,12 @@ public class HubEventProcessor implements Runnable {
         return consumerFactory.create(HubEventDeserializer.class, consumerProps, "telemetry-analyzer-hub-events");
     }
 
+    private boolean isCaughtUp() {
+        Set<TopicPartition> assignment = consumer.assignment();
+        return !assignment.isEmpty() && assignment.stream()
+                .allMatch(partition -> consumer.currentLag(partition).orElse(-1) == 0);
+    }
+
     private void processRecords(ConsumerRecords<String, HubEventAvro> records) {
         for (ConsumerRecord<String, HubEventAvro> record : records) {
             HubEventAvro event = record.value();
@@ -95,12 +117,23 @@ public class HubEventProcessor implements Runnable {
                 log.debug("event=hub-event-received hubId={} key={} partition={} offset={}",
                         event.getHubId(), record.key(), record.partition(), record.offset());
                 handleEvent(event);
+            } catch (DataIntegrityViolationException e) {
+                log.warn("event=hub-event-write-conflict hubId={} offset={}", event.getHubId(), record.offset());
+                retryEvent(event, record.offset());
             } catch (Exception e) {
                 log.error("event=hub-event-handle-failed hubId={} offset={}", event.getHubId(), record.offset(), e);
             }
         }
     }
 
+    private void retryEvent(HubEventAvro event, long offset) {
+        try {
+            handleEvent(event);
+        } catch (Exception e) {
+            log.error("event=hub-event-handle-failed hubId={} offset={}", event.getHubId(), offset, e);
+        }
+    }
+
     private void handleEvent(HubEventAvro event) {
         Object payload = event.getPayload();
         if (payload instanceof DeviceAddedEventAvro deviceAdded) {
@@ -108,12 +141,16 @@ public class HubEventProcessor implements Runnable {
             log.debug("Добавлено устройство {} для хаба {}", deviceAdded.getId(), event.getHubId());
         } else if (payload instanceof DeviceRemovedEventAvro deviceRemoved) {
             storage.handleDeviceRemoved(deviceRemoved);
+            scenarioIndex.removeSensor(event.getHubId(), deviceRemoved.getId());
             log.debug("Удалено устройство {} из хаба {}", deviceRemoved.getId(), event.getHubId());
         } else if (payload instanceof ScenarioAddedEventAvro scenarioAdded) {
             storage.handleScenarioAdded(event.getHubId(), scenarioAdded);
+            scenarioIndex.putScenario(CompiledScenario.fromAvro(event.getHubId(), scenarioAdded));
             log.info("Сценарий {} обновлён для хаба {}", scenarioAdded.getName(), event.getHubId());
         } else if (payload instanceof ScenarioRemovedEventAvro scenarioRemoved) {
             storage.handleScenarioRemoved(event.getHubId(), scenarioRemoved);
+            scenarioIndex.removeScenario(event.getHubId(), scenarioRemoved.getName());
+            triggerTracker.forget(event.getHubId(), scenarioRemoved.getName());
             log.info("Сценарий {} удалён для хаба {}", scenarioRemoved.getName(), event.getHubId());
         } else {
             log.warn("Получен неподдерживаемый payload {}", payload.getClass());
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.telemetry.analyzer.processor;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+final class InFlightOffsets {
+
+    private final Map<TopicPartition, Deque<InFlightRecord>> partitions = new HashMap<>();
+    private int size;
+
+    void track(TopicPartition partition, long offset, CompletableFuture<Void> completion) {
+        partitions.computeIfAbsent(partition, tp -> new ArrayDeque<>()).addLast(new InFlightRecord(offset, completion));
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Map<TopicPartition, OffsetAndMetadata> drainCompleted() {
+        return drainCompleted(List.copyOf(partitions.keySet()));
+    }
+
+    Map<TopicPartition, OffsetAndMetadata> drainCompleted(Collection<TopicPartition> selected) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : selected) {
+            Deque<InFlightRecord> records = partitions.get(partition);
+            if (records == null) {
+                continue;
+            }
+            long committable = -1;
+            while (!records.isEmpty() && records.peekFirst().completion().isDone()) {
+                committable = records.pollFirst().offset() + 1;
+                size--;
+            }
+            if (committable >= 0) {
+                offsets.put(partition, new OffsetAndMetadata(committable));
+            }
+            if (records.isEmpty()) {
+                partitions.remove(partition);
+            }
+        }
+        return offsets;
+    }
+
+    CompletableFuture<Void> completion(Collection<TopicPartition> selected) {
+        List<CompletableFuture<Void>> completions = new ArrayList<>();
+        for (TopicPartition partition : selected) {
+            Deque<InFlightRecord> records = partitions.get(partition);
+            if (records != null) {
+                records.forEach(record -> completions.add(record.completion()));
+            }
+        }
+        return CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new));
+    }
+
+    void forget(Collection<TopicPartition> selected) {
+        for (TopicPartition partition : selected) {
+            Deque<InFlightRecord> records = partitions.remove(partition);
+            if (records != null) {
+                size -= records.size();
+            }
+        }
+    }
+
+    private record InFlightRecord(long offset, CompletableFuture<Void> completion) {
+    }
+}
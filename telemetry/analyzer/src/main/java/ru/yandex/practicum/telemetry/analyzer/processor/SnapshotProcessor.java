@@ -1,28 +1,53 @@
 package ru.yandex.practicum.telemetry.analyzer.processor;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.kafka.KafkaClientMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.telemetry.analyzer.config.KafkaConsumerFactory;
-import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SnapshotMessageDeserializer;
+import ru.yandex.practicum.kafka.header.SnapshotHeaders;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
 import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties;
-import ru.yandex.practicum.telemetry.analyzer.model.Scenario;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledScenario;
 import ru.yandex.practicum.telemetry.analyzer.model.ScenarioActionDecision;
 import ru.yandex.practicum.telemetry.analyzer.service.ActionDispatcher;
 import ru.yandex.practicum.telemetry.analyzer.service.ScenarioEvaluator;
-import ru.yandex.practicum.telemetry.analyzer.storage.ScenarioStorage;
+import ru.yandex.practicum.telemetry.analyzer.service.ScenarioTriggerTracker;
+import ru.yandex.practicum.telemetry.analyzer.service.SnapshotAssembler;
+import ru.yandex.practicum.telemetry.analyzer.storage.HubEventWatermark;
+import ru.yandex.practicum.telemetry.analyzer.storage.ScenarioIndex;
 
 import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
@@ -31,14 +56,23 @@ public class SnapshotProcessor {
 
     private final AnalyzerProperties properties;
     private final KafkaConsumerFactory consumerFactory;
-    private final ScenarioStorage storage;
+    private final ScenarioIndex scenarioIndex;
     private final ScenarioEvaluator evaluator;
     private final ActionDispatcher dispatcher;
+    private final ScenarioTriggerTracker triggerTracker;
+    private final SnapshotAssembler assembler;
+    private final MeterRegistry meterRegistry;
+    private final HubEventWatermark hubEventWatermark;
     private final AtomicBoolean running = new AtomicBoolean(false);
 
-    private KafkaConsumer<String, SensorsSnapshotAvro> consumer;
-    private static final int WARMUP_ATTEMPTS = 20;
-    private static final long WARMUP_DELAY_MS = 250;
+    private KafkaConsumer<String, SpecificRecordBase> consumer;
+    private KafkaClientMetrics consumerMetrics;
+    private Timer evaluationTimer;
+    private final Map<TopicPartition, PausedPartition> pausedPartitions = new HashMap<>();
+    private final InFlightOffsets inFlight = new InFlightOffsets();
+    private ExecutorService[] lanes;
+    private boolean backpressured;
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
 
     public void start() {
         if (!running.compareAndSet(false, true)) {
@@ -47,25 +81,30 @@ public class SnapshotProcessor {
         }
 
         consumer = createConsumer();
+        consumerMetrics = new KafkaClientMetrics(consumer);
+        consumerMetrics.bindTo(meterRegistry);
+        evaluationTimer = Timer.builder("analyzer.snapshot.evaluation")
+                .description("Время обработки снапшота хаба: сценарии, проверка условий и отправка действий")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        lanes = createLanes(properties.getProcessing().getWorkers());
         String topic = properties.getKafka().getTopics().getSnapshots();
-        consumer.subscribe(Collections.singletonList(topic));
-        log.info("SnapshotProcessor подписан на топик {}", topic);
+        consumer.subscribe(Collections.singletonList(topic), new DrainOnRevoke());
+        log.info("SnapshotProcessor подписан на топик {}, воркеров обработки: {}", topic, lanes.length);
 
-        boolean autoCommit = properties.getKafka().getSnapshots().isEnableAutoCommit();
         Duration pollTimeout = Duration.ofMillis(
                 Math.max(properties.getKafka().getSnapshots().getPollTimeoutMs(), 100)
         );
 
         try {
             while (running.get()) {
-                ConsumerRecords<String, SensorsSnapshotAvro> records = consumer.poll(pollTimeout);
-                if (records.isEmpty()) {
-                    continue;
-                }
-                processRecords(records);
-                if (!autoCommit) {
-                    consumer.commitSync();
+                resumeDrainedPartitions();
+                ConsumerRecords<String, SpecificRecordBase> records = consumer.poll(pollTimeout);
+                if (!records.isEmpty()) {
+                    processRecords(records);
                 }
+                commitCompleted();
+                applyBackpressure();
             }
         } catch (WakeupException e) {
             if (running.get()) {
@@ -75,7 +114,9 @@ public class SnapshotProcessor {
         } catch (Exception e) {
             log.error("Ошибка при обработке снапшотов", e);
         } finally {
+            drainInFlight();
             closeConsumer();
+            shutdownLanes();
             running.set(false);
         }
     }
@@ -85,59 +126,247 @@ public class SnapshotProcessor {
         Optional.ofNullable(consumer).ifPresent(KafkaConsumer::wakeup);
     }
 
-    private KafkaConsumer<String, SensorsSnapshotAvro> createConsumer() {
+    private KafkaConsumer<String, SpecificRecordBase> createConsumer() {
         AnalyzerProperties.Consumer consumerProps = properties.getKafka().getSnapshots();
-        return consumerFactory.create(SensorsSnapshotDeserializer.class, consumerProps, "telemetry-analyzer-snapshots");
+        return consumerFactory.create(SnapshotMessageDeserializer.class, consumerProps, "telemetry-analyzer-snapshots");
     }
 
-    private void processRecords(ConsumerRecords<String, SensorsSnapshotAvro> records) {
-        for (ConsumerRecord<String, SensorsSnapshotAvro> record : records) {
-            SensorsSnapshotAvro snapshot = record.value();
-            if (snapshot == null || snapshot.getHubId() == null) {
-                continue;
+    private ExecutorService[] createLanes(int configuredWorkers) {
+        int workers = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+        ExecutorService[] created = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            String name = "snapshot-worker-" + i;
+            created[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, name));
+        }
+        return created;
+    }
+
+    private void processRecords(ConsumerRecords<String, SpecificRecordBase> records) {
+        for (TopicPartition partition : records.partitions()) {
+            for (ConsumerRecord<String, SpecificRecordBase> record : records.records(partition)) {
+                if (dispatcher.isSaturated(record.key())) {
+                    pausePartition(partition, record, PauseReason.DISPATCH_SATURATED);
+                    break;
+                }
+                if (awaitsHubEvents(record)) {
+                    pausePartition(partition, record, PauseReason.AWAITING_HUB_EVENTS);
+                    break;
+                }
+                submit(partition, record);
+            }
+        }
+    }
+
+    private void submit(TopicPartition partition, ConsumerRecord<String, SpecificRecordBase> record) {
+        ExecutorService lane = lanes[Math.floorMod(Objects.hashCode(record.key()), lanes.length)];
+        CompletableFuture<Void> completion = CompletableFuture
+                .supplyAsync(() -> processRecord(record), lane)
+                .thenCompose(Function.identity());
+        inFlight.track(partition, record.offset(), completion);
+    }
+
+    private void commitCompleted() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = inFlight.drainCompleted();
+        if (!offsets.isEmpty() && !properties.getKafka().getSnapshots().isEnableAutoCommit()) {
+            consumer.commitSync(offsets);
+        }
+    }
+
+    private void applyBackpressure() {
+        int maxInFlight = properties.getProcessing().getMaxInFlight();
+        if (!backpressured && inFlight.size() >= maxInFlight) {
+            backpressured = true;
+            consumer.pause(consumer.assignment());
+            log.warn("event=snapshot-backpressure-on inFlight={}", inFlight.size());
+        } else if (backpressured && inFlight.size() <= maxInFlight / 2) {
+            backpressured = false;
+            List<TopicPartition> resumable = consumer.assignment().stream()
+                    .filter(partition -> !pausedPartitions.containsKey(partition))
+                    .toList();
+            consumer.resume(resumable);
+            log.info("event=snapshot-backpressure-off inFlight={}", inFlight.size());
+        }
+    }
+
+    private void drainInFlight() {
+        if (consumer == null || inFlight.size() == 0) {
+            return;
+        }
+        try {
+            awaitCompletion(consumer.assignment());
+            commitCompleted();
+        } catch (Exception e) {
+            log.warn("Не удалось зафиксировать смещения обработанных снапшотов при остановке", e);
+        }
+    }
+
+    private void awaitCompletion(Collection<TopicPartition> partitions) {
+        long drainTimeoutMs = properties.getProcessing().getDrainTimeoutMs();
+        try {
+            inFlight.completion(partitions).get(drainTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("event=snapshot-drain-timeout partitions={} timeoutMs={}", partitions, drainTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.debug("Обработка снапшота завершилась ошибкой при ожидании", e);
+        }
+    }
+
+    private void shutdownLanes() {
+        if (lanes == null) {
+            return;
+        }
+        for (ExecutorService lane : lanes) {
+            lane.shutdownNow();
+        }
+        lanes = null;
+    }
+
+    private boolean awaitsHubEvents(ConsumerRecord<String, SpecificRecordBase> record) {
+        String hubId = record.key();
+        return hubId != null
+                && scenarioIndex.findByHubId(hubId).isEmpty()
+                && !scenarioIndex.isKnownEmpty(hubId)
+                && !hubEventsApplied(record.timestamp());
+    }
+
+    private void pausePartition(TopicPartition partition,
+                                ConsumerRecord<String, SpecificRecordBase> record,
+                                PauseReason reason) {
+        consumer.pause(List.of(partition));
+        consumer.seek(partition, record.offset());
+        pausedPartitions.put(partition,
+                new PausedPartition(record.key(), reason, record.timestamp(), System.currentTimeMillis()));
+        log.warn("event=partition-paused partition={} offset={} hubId={} reason={}",
+                partition, record.offset(), record.key(), reason);
+    }
+
+    private void resumeDrainedPartitions() {
+        if (pausedPartitions.isEmpty()) {
+            return;
+        }
+        Iterator<Map.Entry<TopicPartition, PausedPartition>> iterator = pausedPartitions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TopicPartition, PausedPartition> entry = iterator.next();
+            if (!consumer.assignment().contains(entry.getKey())) {
+                iterator.remove();
+            } else if (isResumable(entry.getValue())) {
+                if (!backpressured) {
+                    consumer.resume(List.of(entry.getKey()));
+                }
+                iterator.remove();
+                log.info("event=partition-resumed partition={} hubId={} reason={}",
+                        entry.getKey(), entry.getValue().hubId(), entry.getValue().reason());
             }
-            try {
-                log.debug("event=snapshot-received hubId={} partition={} offset={}",
-                        snapshot.getHubId(), record.partition(), record.offset());
-                processSnapshot(snapshot);
-            } catch (Exception e) {
-                log.error("Ошибка при обработке снапшота хаба {}", snapshot.getHubId(), e);
+        }
+    }
+
+    private boolean isResumable(PausedPartition paused) {
+        if (paused.reason() == PauseReason.DISPATCH_SATURATED) {
+            return !dispatcher.isSaturated(paused.hubId());
+        }
+        if (hubEventsApplied(paused.recordTimestamp())) {
+            return true;
+        }
+        long waitMs = properties.getProcessing().getHubEventsWaitMs();
+        if (System.currentTimeMillis() - paused.pausedAtMs() < waitMs) {
+            return false;
+        }
+        log.warn("event=hub-events-wait-timeout hubId={} recordTimestamp={} watermark={} waitMs={}",
+                paused.hubId(), paused.recordTimestamp(), hubEventWatermark.current(), waitMs);
+        return true;
+    }
+
+    private boolean hubEventsApplied(long recordTimestamp) {
+        return hubEventWatermark.covers(recordTimestamp + properties.getProcessing().getHubEventsClockSkewMs());
+    }
+
+    private CompletableFuture<Void> processRecord(ConsumerRecord<String, SpecificRecordBase> record) {
+        if (record.value() == null) {
+            return COMPLETED;
+        }
+        try {
+            log.debug("event=snapshot-received key={} partition={} offset={}",
+                    record.key(), record.partition(), record.offset());
+            Optional<SensorsSnapshotAvro> snapshot =
+                    assembler.apply(record.value(), SnapshotHeaders.sequence(record.headers()),
+                            SnapshotHeaders.isDeltaBase(record.headers()));
+            if (snapshot.isEmpty() || snapshot.get().getHubId() == null) {
+                return COMPLETED;
             }
+            Set<String> changedSensors = SnapshotHeaders.changedSensors(record.headers());
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return processSnapshot(snapshot.get(), changedSensors, record.timestamp())
+                    .whenComplete((ignored, error) -> sample.stop(evaluationTimer));
+        } catch (Exception e) {
+            log.error("Ошибка при обработке снапшота хаба {}", record.key(), e);
+            return COMPLETED;
         }
     }
 
-    private void processSnapshot(SensorsSnapshotAvro snapshot) {
-        List<Scenario> scenarios = loadScenariosWithWarmup(snapshot.getHubId());
+    private CompletableFuture<Void> processSnapshot(SensorsSnapshotAvro snapshot,
+                                                    Set<String> changedSensors,
+                                                    long recordTimestamp) {
+        List<CompiledScenario> scenarios = loadScenarios(snapshot.getHubId(), recordTimestamp);
         if (scenarios.isEmpty()) {
             log.debug("Для хаба {} нет сценариев, снапшот пропущен", snapshot.getHubId());
-            return;
+            return COMPLETED;
+        }
+
+        List<CompiledScenario> affected = changedSensors.isEmpty()
+                ? scenarios
+                : scenarioIndex.findBySensors(snapshot.getHubId(), changedSensors);
+        if (affected.isEmpty()) {
+            log.debug("Изменённые датчики {} хаба {} не участвуют в сценариях", changedSensors, snapshot.getHubId());
+            return COMPLETED;
         }
 
-        List<ScenarioActionDecision> decisions = evaluator.evaluate(snapshot, scenarios);
+        List<ScenarioActionDecision> decisions = evaluator.evaluate(snapshot, affected);
         if (decisions.isEmpty()) {
             log.debug("Ни одно условие не выполнено для хаба {}", snapshot.getHubId());
-            return;
+            return COMPLETED;
         }
 
-        Instant timestamp = snapshot.getTimestamp();
-        dispatcher.dispatch(snapshot.getHubId(), timestamp, decisions);
+        return dispatch(snapshot, affected, decisions);
     }
 
-    private List<Scenario> loadScenariosWithWarmup(String hubId) {
-        List<Scenario> scenarios = storage.findByHubId(hubId);
-        for (int i = 0; i < WARMUP_ATTEMPTS && scenarios.isEmpty(); i++) {
-            try {
-                Thread.sleep(WARMUP_DELAY_MS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+    private CompletableFuture<Void> dispatch(SensorsSnapshotAvro snapshot,
+                                             List<CompiledScenario> affected,
+                                             List<ScenarioActionDecision> decisions) {
+        Map<String, List<ScenarioActionDecision>> byScenario = decisions.stream()
+                .collect(Collectors.groupingBy(ScenarioActionDecision::scenarioName, LinkedHashMap::new, Collectors.toList()));
+        List<CompletableFuture<Void>> results = new ArrayList<>(byScenario.size());
+        for (CompiledScenario scenario : affected) {
+            List<ScenarioActionDecision> scenarioDecisions = byScenario.get(scenario.name());
+            if (scenarioDecisions == null) {
+                continue;
             }
-            scenarios = storage.findByHubId(hubId);
+            results.add(dispatcher.dispatch(snapshot.getHubId(), snapshot.getTimestamp(), scenarioDecisions)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            triggerTracker.reset(scenario);
+                            log.warn("event=scenario-trigger-reset hubId={} scenario={} cause={}",
+                                    scenario.hubId(), scenario.name(), error.toString());
+                        }
+                    }));
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new));
+    }
+
+    private List<CompiledScenario> loadScenarios(String hubId, long recordTimestamp) {
+        List<CompiledScenario> scenarios = scenarioIndex.findByHubId(hubId);
+        if (scenarios.isEmpty() && !scenarioIndex.isKnownEmpty(hubId) && hubEventsApplied(recordTimestamp)) {
+            scenarioIndex.markEmpty(hubId);
         }
         return scenarios;
     }
 
     private void closeConsumer() {
+        Optional.ofNullable(consumerMetrics).ifPresent(KafkaClientMetrics::close);
+        consumerMetrics = null;
+        pausedPartitions.clear();
+        backpressured = false;
         try {
             if (consumer != null) {
                 consumer.close(Duration.ofSeconds(5));
@@ -149,4 +378,39 @@ public class SnapshotProcessor {
             consumer = null;
         }
     }
-}
\ No newline at end of file
+
+    private enum PauseReason {
+        DISPATCH_SATURATED,
+        AWAITING_HUB_EVENTS
+    }
+
+    private record PausedPartition(String hubId, PauseReason reason, long recordTimestamp, long pausedAtMs) {
+    }
+
+    private class DrainOnRevoke implements ConsumerRebalanceListener {
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            awaitCompletion(partitions);
+            Map<TopicPartition, OffsetAndMetadata> offsets = inFlight.drainCompleted(partitions);
+            if (!offsets.isEmpty() && !properties.getKafka().getSnapshots().isEnableAutoCommit()) {
+                consumer.commitSync(offsets);
+            }
+            inFlight.forget(partitions);
+            pausedPartitions.keySet().removeAll(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            if (backpressured) {
+                consumer.pause(partitions);
+            }
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            inFlight.forget(partitions);
+            pausedPartitions.keySet().removeAll(partitions);
+        }
+    }
+}
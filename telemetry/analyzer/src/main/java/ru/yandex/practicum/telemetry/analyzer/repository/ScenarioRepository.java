@@ -2,6 +2,9 @@ package ru.yandex.practicum.telemetry.analyzer.repository;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.yandex.practicum.telemetry.analyzer.model.Scenario;
 
 import java.util.List;
@@ -10,8 +13,22 @@ import java.util.Optional;
 public interface ScenarioRepository extends JpaRepository<Scenario, Long> {
 
     @EntityGraph(attributePaths = {"conditions", "actions"})
-    List<Scenario> findByHubId(String hubId);
+    List<Scenario> findAllBy();
 
     @EntityGraph(attributePaths = {"conditions", "actions"})
     Optional<Scenario> findByHubIdAndName(String hubId, String name);
-}
\ No newline at end of file
+
+    @Query(value = "SELECT condition_id FROM scenario_conditions WHERE sensor_id = :sensorId", nativeQuery = true)
+    List<Long> findConditionIdsBySensorId(@Param("sensorId") String sensorId);
+
+    @Query(value = "SELECT action_id FROM scenario_actions WHERE sensor_id = :sensorId", nativeQuery = true)
+    List<Long> findActionIdsBySensorId(@Param("sensorId") String sensorId);
+
+    @Modifying
+    @Query(value = "DELETE FROM scenario_conditions WHERE sensor_id = :sensorId", nativeQuery = true)
+    int deleteConditionLinksBySensorId(@Param("sensorId") String sensorId);
+
+    @Modifying
+    @Query(value = "DELETE FROM scenario_actions WHERE sensor_id = :sensorId", nativeQuery = true)
+    int deleteActionLinksBySensorId(@Param("sensorId") String sensorId);
+}
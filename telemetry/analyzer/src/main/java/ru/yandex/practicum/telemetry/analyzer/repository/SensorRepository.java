@@ -1,14 +1,19 @@
 package ru.yandex.practicum.telemetry.analyzer.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.yandex.practicum.telemetry.analyzer.model.Sensor;
 
-import java.util.Collection;
-import java.util.Optional;
-
 public interface SensorRepository extends JpaRepository<Sensor, String> {
 
-    boolean existsByIdInAndHubId(Collection<String> ids, String hubId);
-
-    Optional<Sensor> findByIdAndHubId(String id, String hubId);
-}
\ No newline at end of file
+    @Modifying
+    @Query(value = """
+            INSERT INTO sensors (id, hub_id)
+            SELECT sensor_id, :hubId FROM unnest(CAST(:sensorIds AS varchar[])) AS sensor_id
+            ON CONFLICT (id) DO UPDATE SET hub_id = EXCLUDED.hub_id
+            WHERE sensors.hub_id IS DISTINCT FROM EXCLUDED.hub_id
+            """, nativeQuery = true)
+    int upsertAll(@Param("hubId") String hubId, @Param("sensorIds") String[] sensorIds);
+}
@@ -1,34 +1,168 @@
 package ru.yandex.practicum.telemetry.analyzer.service;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Empty;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.grpc.telemetry.event.DeviceActionProto;
 import ru.yandex.practicum.grpc.telemetry.event.DeviceActionRequest;
 import ru.yandex.practicum.grpc.telemetry.hubrouter.HubRouterControllerGrpc;
+import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties;
 import ru.yandex.practicum.telemetry.analyzer.model.ScenarioActionDecision;
 import ru.yandex.practicum.telemetry.analyzer.util.GrpcTimestampMapper;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
 public class ActionDispatcher {
 
     @GrpcClient("hub-router")
-    private HubRouterControllerGrpc.HubRouterControllerBlockingStub hubRouterClient;
+    private HubRouterControllerGrpc.HubRouterControllerFutureStub hubRouterClient;
 
-    public void dispatch(String hubId, Instant timestamp, List<ScenarioActionDecision> decisions) {
+    private final AnalyzerProperties.Dispatch config;
+    private final ConcurrentMap<String, HubQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ScheduledExecutorService retryScheduler;
+    private final Timer sentTimer;
+    private final Timer failedTimer;
+    private final Counter retries;
+    private final Counter rejected;
+    private volatile boolean closed;
+
+    public ActionDispatcher(AnalyzerProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getDispatch();
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "action-dispatch-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sentTimer = dispatchTimer(meterRegistry, "success");
+        this.failedTimer = dispatchTimer(meterRegistry, "error");
+        this.retries = Counter.builder("analyzer.action.retries")
+                .description("Повторные попытки отправки действий в hub-router")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("analyzer.action.rejected")
+                .description("Действия, отброшенные из-за переполнения очереди хаба")
+                .register(meterRegistry);
+        Gauge.builder("analyzer.action.pending", pending, AtomicInteger::get)
+                .description("Действия, ожидающие отправки в hub-router")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> dispatch(String hubId, Instant timestamp, List<ScenarioActionDecision> decisions) {
         if (decisions.isEmpty()) {
-            return;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (closed) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Отправка действий остановлена"));
+        }
+
+        List<CompletableFuture<Void>> completions = new ArrayList<>(decisions.size());
+        PendingAction head = null;
+        boolean enqueued = false;
+        while (!enqueued) {
+            HubQueue queue = queues.computeIfAbsent(hubId, id -> new HubQueue());
+            synchronized (queue) {
+                if (queue.retired) {
+                    continue;
+                }
+                enqueued = true;
+                for (ScenarioActionDecision decision : decisions) {
+                    PendingAction action = new PendingAction(queue, hubId, decision, buildRequest(hubId, timestamp, decision));
+                    completions.add(action.completion);
+                    if (queue.actions.size() >= config.getQueueCapacity()) {
+                        rejected.increment();
+                        log.warn("event=device-action-rejected hubId={} scenario={} actionType={} sensorId={} queued={}",
+                                hubId, decision.scenarioName(), decision.actionType(), decision.sensorId(),
+                                queue.actions.size());
+                        action.completion.completeExceptionally(new RejectedExecutionException(
+                                "Очередь действий хаба " + hubId + " переполнена"));
+                        continue;
+                    }
+                    queue.actions.addLast(action);
+                    pending.incrementAndGet();
+                }
+                if (!queue.sending && !queue.actions.isEmpty()) {
+                    queue.sending = true;
+                    head = queue.actions.peekFirst();
+                } else if (!queue.sending) {
+                    retire(hubId, queue);
+                }
+            }
+        }
+        if (head != null) {
+            send(head);
+        }
+        return CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new));
+    }
+
+    public boolean isSaturated(String hubId) {
+        if (pending.get() >= config.getMaxPending()) {
+            return true;
+        }
+        HubQueue queue = hubId != null ? queues.get(hubId) : null;
+        if (queue == null) {
+            return false;
         }
-        for (ScenarioActionDecision decision : decisions) {
-            sendRequest(hubId, timestamp, decision);
+        synchronized (queue) {
+            return queue.actions.size() >= config.getPauseThreshold();
         }
     }
 
-    private void sendRequest(String hubId, Instant snapshotTimestamp, ScenarioActionDecision decision) {
+    @PreDestroy
+    public void close() {
+        closed = true;
+        retryScheduler.shutdownNow();
+        RejectedExecutionException error = new RejectedExecutionException("Отправка действий остановлена");
+        int dropped = 0;
+        for (HubQueue queue : queues.values()) {
+            List<PendingAction> actions;
+            synchronized (queue) {
+                actions = new ArrayList<>(queue.actions);
+                queue.actions.clear();
+                queue.sending = false;
+                queue.retired = true;
+            }
+            for (PendingAction action : actions) {
+                if (action.completion.completeExceptionally(error)) {
+                    pending.decrementAndGet();
+                    dropped++;
+                }
+            }
+        }
+        queues.clear();
+        if (dropped > 0) {
+            log.warn("event=device-actions-dropped pending={}", dropped);
+        }
+    }
+
+    private DeviceActionRequest buildRequest(String hubId, Instant snapshotTimestamp, ScenarioActionDecision decision) {
         DeviceActionProto.Builder actionBuilder = DeviceActionProto.newBuilder()
                 .setSensorId(decision.sensorId())
                 .setType(decision.actionType().toProto());
@@ -36,20 +170,151 @@ public class ActionDispatcher {
             actionBuilder.setValue(decision.value());
         }
 
-        DeviceActionRequest request = DeviceActionRequest.newBuilder()
+        return DeviceActionRequest.newBuilder()
                 .setHubId(hubId)
                 .setScenarioName(decision.scenarioName())
                 .setAction(actionBuilder.build())
                 .setTimestamp(GrpcTimestampMapper.fromInstant(snapshotTimestamp))
                 .build();
+    }
 
+    private void send(PendingAction action) {
+        while (action != null) {
+            action = attempt(action);
+        }
+    }
+
+    private PendingAction attempt(PendingAction action) {
+        action.attempt++;
+        long startedAt = System.nanoTime();
+        ListenableFuture<Empty> call;
         try {
-            hubRouterClient.handleDeviceAction(request);
-            log.info("event=device-action-sent hubId={} scenario={} actionType={} sensorId={}",
-                    hubId, decision.scenarioName(), decision.actionType(), decision.sensorId());
+            call = hubRouterClient
+                    .withDeadlineAfter(config.getDeadlineMs(), TimeUnit.MILLISECONDS)
+                    .handleDeviceAction(action.request);
         } catch (Exception e) {
-            log.error("event=device-action-send-failed hubId={} scenario={} actionType={} sensorId={}",
-                    hubId, decision.scenarioName(), decision.actionType(), decision.sensorId(), e);
+            return onFailure(action, startedAt, e);
+        }
+        if (call.isDone()) {
+            try {
+                Futures.getDone(call);
+                return onSuccess(action, startedAt);
+            } catch (ExecutionException e) {
+                return onFailure(action, startedAt, e.getCause());
+            } catch (RuntimeException e) {
+                return onFailure(action, startedAt, e);
+            }
+        }
+        Futures.addCallback(call, new FutureCallback<>() {
+            @Override
+            public void onSuccess(Empty result) {
+                send(ActionDispatcher.this.onSuccess(action, startedAt));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                send(ActionDispatcher.this.onFailure(action, startedAt, t));
+            }
+        }, MoreExecutors.directExecutor());
+        return null;
+    }
+
+    private PendingAction onSuccess(PendingAction action, long startedAt) {
+        sentTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        log.info("event=device-action-sent hubId={} scenario={} actionType={} sensorId={} attempt={}",
+                action.hubId, action.decision.scenarioName(), action.decision.actionType(),
+                action.decision.sensorId(), action.attempt);
+        return complete(action, null);
+    }
+
+    private PendingAction onFailure(PendingAction action, long startedAt, Throwable error) {
+        failedTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        ScenarioActionDecision decision = action.decision;
+        if (action.attempt < config.getMaxAttempts() && isRetryable(error)) {
+            long backoffMs = backoffMs(action.attempt);
+            try {
+                retryScheduler.schedule(() -> send(action), backoffMs, TimeUnit.MILLISECONDS);
+                retries.increment();
+                log.warn("event=device-action-retry hubId={} scenario={} actionType={} sensorId={} attempt={} backoffMs={} status={}",
+                        action.hubId, decision.scenarioName(), decision.actionType(), decision.sensorId(),
+                        action.attempt, backoffMs, Status.fromThrowable(error).getCode());
+                return null;
+            } catch (RejectedExecutionException e) {
+                log.debug("Планировщик повторов остановлен, действие хаба {} не будет повторено", action.hubId);
+            }
+        }
+        log.error("event=device-action-send-failed hubId={} scenario={} actionType={} sensorId={} attempt={}",
+                action.hubId, decision.scenarioName(), decision.actionType(), decision.sensorId(),
+                action.attempt, error);
+        return complete(action, error);
+    }
+
+    private PendingAction complete(PendingAction action, Throwable error) {
+        boolean completed = error != null
+                ? action.completion.completeExceptionally(error)
+                : action.completion.complete(null);
+        if (!completed) {
+            return null;
+        }
+        pending.decrementAndGet();
+        HubQueue queue = action.queue;
+        synchronized (queue) {
+            queue.actions.pollFirst();
+            PendingAction next = queue.actions.peekFirst();
+            queue.sending = next != null;
+            if (next == null) {
+                retire(action.hubId, queue);
+            }
+            return next;
+        }
+    }
+
+    private void retire(String hubId, HubQueue queue) {
+        queue.retired = true;
+        queues.remove(hubId, queue);
+    }
+
+    private long backoffMs(int attempt) {
+        long exponential = config.getInitialBackoffMs() << Math.min(attempt - 1, 20);
+        long capped = Math.min(exponential, config.getMaxBackoffMs());
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        return switch (Status.fromThrowable(error).getCode()) {
+            case UNAVAILABLE, DEADLINE_EXCEEDED, RESOURCE_EXHAUSTED, ABORTED -> true;
+            default -> false;
+        };
+    }
+
+    private static Timer dispatchTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("analyzer.action.dispatch")
+                .description("Время RPC-вызова hub-router для отправки действия")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static final class HubQueue {
+        private final Deque<PendingAction> actions = new ArrayDeque<>();
+        private boolean sending;
+        private boolean retired;
+    }
+
+    private static final class PendingAction {
+        private final HubQueue queue;
+        private final String hubId;
+        private final ScenarioActionDecision decision;
+        private final DeviceActionRequest request;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private int attempt;
+
+        private PendingAction(HubQueue queue, String hubId, ScenarioActionDecision decision,
+                              DeviceActionRequest request) {
+            this.queue = queue;
+            this.hubId = hubId;
+            this.decision = decision;
+            this.request = request;
         }
     }
-}
\ No newline at end of file
+}
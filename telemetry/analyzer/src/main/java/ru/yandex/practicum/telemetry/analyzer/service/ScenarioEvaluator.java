@@ -9,12 +9,17 @@ import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
 import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
 import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
-import ru.yandex.practicum.telemetry.analyzer.model.Condition;
+import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties;
+import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties.EvaluationMode;
+import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties.TriggerMode;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledAction;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledCondition;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledScenario;
 import ru.yandex.practicum.telemetry.analyzer.model.ConditionOperation;
 import ru.yandex.practicum.telemetry.analyzer.model.ConditionType;
-import ru.yandex.practicum.telemetry.analyzer.model.Scenario;
 import ru.yandex.practicum.telemetry.analyzer.model.ScenarioActionDecision;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -27,8 +32,14 @@ import java.util.stream.Collectors;
 public class ScenarioEvaluator {
 
     private final Map<ConditionType, Function<SensorStateAvro, OptionalInt>> valueExtractors = new EnumMap<>(ConditionType.class);
+    private final EvaluationMode mode;
+    private final TriggerMode trigger;
+    private final ScenarioTriggerTracker triggerTracker;
 
-    public ScenarioEvaluator() {
+    public ScenarioEvaluator(AnalyzerProperties properties, ScenarioTriggerTracker triggerTracker) {
+        this.mode = properties.getEvaluation().getMode();
+        this.trigger = properties.getEvaluation().getTrigger();
+        this.triggerTracker = triggerTracker;
         valueExtractors.put(ConditionType.MOTION, state -> extractBoolean(state, MotionSensorAvro.class, MotionSensorAvro::getMotion));
         valueExtractors.put(ConditionType.LUMINOSITY, state -> extractInt(state, LightSensorAvro.class, LightSensorAvro::getLuminosity));
         valueExtractors.put(ConditionType.SWITCH, state -> extractBoolean(state, SwitchSensorAvro.class, SwitchSensorAvro::getState));
@@ -37,7 +48,7 @@ public class ScenarioEvaluator {
         valueExtractors.put(ConditionType.HUMIDITY, state -> extractInt(state, ClimateSensorAvro.class, ClimateSensorAvro::getHumidity));
     }
 
-    public List<ScenarioActionDecision> evaluate(SensorsSnapshotAvro snapshot, List<Scenario> scenarios) {
+    public List<ScenarioActionDecision> evaluate(SensorsSnapshotAvro snapshot, List<CompiledScenario> scenarios) {
         if (snapshot == null || scenarios.isEmpty()) {
             return List.of();
         }
@@ -45,25 +56,54 @@ public class ScenarioEvaluator {
                 ? snapshot.getSensorsState()
                 : Map.of();
 
+        return mode == EvaluationMode.COMPILED
+                ? evaluateCompiled(states, scenarios)
+                : evaluateInterpreted(states, scenarios);
+    }
+
+    private List<ScenarioActionDecision> evaluateCompiled(Map<String, SensorStateAvro> states,
+                                                          List<CompiledScenario> scenarios) {
+        List<ScenarioActionDecision> decisions = null;
+        for (int i = 0; i < scenarios.size(); i++) {
+            CompiledScenario scenario = scenarios.get(i);
+            if (!fires(scenario, scenario.predicate().test(states))) {
+                continue;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Сценарий {} выполнен для хаба {}", scenario.name(), scenario.hubId());
+            }
+            if (decisions == null) {
+                decisions = new ArrayList<>();
+            }
+            for (CompiledAction action : scenario.actions()) {
+                decisions.add(ScenarioActionDecision.of(scenario.name(), action));
+            }
+        }
+        return decisions != null ? decisions : List.of();
+    }
+
+    private List<ScenarioActionDecision> evaluateInterpreted(Map<String, SensorStateAvro> states,
+                                                             List<CompiledScenario> scenarios) {
         return scenarios.stream()
-                .filter(scenario -> matchesScenario(scenario, states))
-                .peek(scenario -> log.debug("Сценарий {} выполнен для хаба {}", scenario.getName(), scenario.getHubId()))
-                .flatMap(scenario -> scenario.getActions().entrySet().stream()
-                        .map(entry -> ScenarioActionDecision.of(
-                                scenario.getName(),
-                                entry.getKey(),
-                                entry.getValue()
-                        )))
+                .filter(scenario -> fires(scenario, matchesScenario(scenario, states)))
+                .peek(scenario -> log.debug("Сценарий {} выполнен для хаба {}", scenario.name(), scenario.hubId()))
+                .flatMap(scenario -> scenario.actions().stream()
+                        .map(action -> ScenarioActionDecision.of(scenario.name(), action)))
                 .collect(Collectors.toList());
     }
 
-    private boolean matchesScenario(Scenario scenario, Map<String, SensorStateAvro> states) {
-        return scenario.getConditions().entrySet().stream()
-                .allMatch(entry -> matchesCondition(entry.getKey(), entry.getValue(), states));
+    private boolean fires(CompiledScenario scenario, boolean matched) {
+        return trigger == TriggerMode.LEVEL ? matched : triggerTracker.fires(scenario, matched);
+    }
+
+    private boolean matchesScenario(CompiledScenario scenario, Map<String, SensorStateAvro> states) {
+        return scenario.conditions().stream()
+                .allMatch(condition -> matchesCondition(condition, states));
     }
 
-    private boolean matchesCondition(String sensorId, Condition condition, Map<String, SensorStateAvro> states) {
-        if (condition.getValue() == null) {
+    private boolean matchesCondition(CompiledCondition condition, Map<String, SensorStateAvro> states) {
+        String sensorId = condition.sensorId();
+        if (condition.value() == null) {
             log.debug("Условие без опорного значения пропущено: {}", condition);
             return false;
         }
@@ -72,9 +112,9 @@ public class ScenarioEvaluator {
             log.debug("Нет данных для датчика {} в условии {}", sensorId, condition);
             return false;
         }
-        Function<SensorStateAvro, OptionalInt> extractor = valueExtractors.get(condition.getType());
+        Function<SensorStateAvro, OptionalInt> extractor = valueExtractors.get(condition.type());
         if (extractor == null) {
-            log.warn("Отсутствует обработчик типа условия {}", condition.getType());
+            log.warn("Отсутствует обработчик типа условия {}", condition.type());
             return false;
         }
 
@@ -83,7 +123,7 @@ public class ScenarioEvaluator {
             log.debug("Не удалось извлечь значение по условию {}", condition);
             return false;
         }
-        return compare(actual.getAsInt(), condition.getValue(), condition.getOperation());
+        return compare(actual.getAsInt(), condition.value(), condition.operation());
     }
 
     private OptionalInt extractTemperature(SensorStateAvro state) {
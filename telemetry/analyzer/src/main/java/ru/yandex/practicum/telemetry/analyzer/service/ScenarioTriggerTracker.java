@@ -0,0 +1,41 @@
+package ru.yandex.practicum.telemetry.analyzer.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledScenario;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class ScenarioTriggerTracker {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, CompiledScenario>> matchedByHub = new ConcurrentHashMap<>();
+
+    public boolean fires(CompiledScenario scenario, boolean matched) {
+        if (!matched) {
+            ConcurrentMap<String, CompiledScenario> matchedScenarios = matchedByHub.get(scenario.hubId());
+            if (matchedScenarios != null) {
+                matchedScenarios.remove(scenario.name());
+            }
+            return false;
+        }
+        CompiledScenario previous = matchedByHub
+                .computeIfAbsent(scenario.hubId(), hubId -> new ConcurrentHashMap<>())
+                .put(scenario.name(), scenario);
+        return previous != scenario;
+    }
+
+    public void reset(CompiledScenario scenario) {
+        ConcurrentMap<String, CompiledScenario> matchedScenarios = matchedByHub.get(scenario.hubId());
+        if (matchedScenarios != null) {
+            matchedScenarios.remove(scenario.name(), scenario);
+        }
+    }
+
+    public void forget(String hubId, String scenarioName) {
+        matchedByHub.computeIfPresent(hubId, (id, matchedScenarios) -> {
+            matchedScenarios.remove(scenarioName);
+            return matchedScenarios.isEmpty() ? null : matchedScenarios;
+        });
+    }
+}
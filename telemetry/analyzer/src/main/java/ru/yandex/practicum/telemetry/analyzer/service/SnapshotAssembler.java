@@ -0,0 +1,105 @@
+package ru.yandex.practicum.telemetry.analyzer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotDeltaAvro;
+import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties;
+
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class SnapshotAssembler {
+
+    private static final long UNKNOWN_SEQUENCE = -1;
+
+    private final ConcurrentMap<String, HubState> hubs = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweepAt = new AtomicLong(System.currentTimeMillis());
+    private final AnalyzerProperties.Processing config;
+
+    public SnapshotAssembler(AnalyzerProperties properties) {
+        this.config = properties.getProcessing();
+    }
+
+    public Optional<SensorsSnapshotAvro> apply(SpecificRecordBase message, OptionalLong sequence, boolean deltaBase) {
+        evictExpired();
+        if (message instanceof SensorsSnapshotAvro snapshot) {
+            return Optional.of(applyFull(snapshot, sequence.orElse(UNKNOWN_SEQUENCE), deltaBase));
+        }
+        if (message instanceof SensorsSnapshotDeltaAvro delta) {
+            return applyDelta(delta);
+        }
+        log.warn("Получено сообщение снапшота неподдерживаемого типа {}", message.getClass());
+        return Optional.empty();
+    }
+
+    private SensorsSnapshotAvro applyFull(SensorsSnapshotAvro snapshot, long sequence, boolean deltaBase) {
+        if (!deltaBase) {
+            hubs.remove(snapshot.getHubId());
+            return snapshot;
+        }
+        if (snapshot.getSensorsState() == null) {
+            snapshot.setSensorsState(new HashMap<>());
+        }
+        hubs.put(snapshot.getHubId(), new HubState(snapshot, sequence));
+        return snapshot;
+    }
+
+    private Optional<SensorsSnapshotAvro> applyDelta(SensorsSnapshotDeltaAvro delta) {
+        String hubId = delta.getHubId();
+        HubState state = hubs.get(hubId);
+        if (state != null && state.sequence != UNKNOWN_SEQUENCE && delta.getSequence() <= state.sequence) {
+            log.debug("event=snapshot-delta-duplicate hubId={} sequence={} current={}",
+                    hubId, delta.getSequence(), state.sequence);
+            return Optional.empty();
+        }
+        if (state == null || state.sequence == UNKNOWN_SEQUENCE || delta.getSequence() != state.sequence + 1) {
+            log.warn("event=snapshot-delta-skipped hubId={} sequence={} expected={}",
+                    hubId, delta.getSequence(), state != null ? state.sequence + 1 : null);
+            hubs.remove(hubId);
+            return Optional.empty();
+        }
+
+        state.snapshot.getSensorsState().putAll(delta.getSensorsState());
+        state.snapshot.setTimestamp(delta.getTimestamp());
+        state.sequence = delta.getSequence();
+        state.lastSeenMillis = System.currentTimeMillis();
+        return Optional.of(state.snapshot);
+    }
+
+    private void evictExpired() {
+        long ttlMs = config.getDeltaStateTtlMs();
+        long now = System.currentTimeMillis();
+        long lastSweep = lastSweepAt.get();
+        if (ttlMs <= 0 || hubs.isEmpty()
+                || now - lastSweep < config.getDeltaStateSweepIntervalMs()
+                || !lastSweepAt.compareAndSet(lastSweep, now)) {
+            return;
+        }
+        int before = hubs.size();
+        hubs.values().removeIf(state -> now - state.lastSeenMillis > ttlMs);
+        int evicted = before - hubs.size();
+        if (evicted > 0) {
+            log.info("event=snapshot-state-evicted evicted={} remaining={}", evicted, hubs.size());
+        }
+    }
+
+    private static final class HubState {
+
+        private final SensorsSnapshotAvro snapshot;
+        private long sequence;
+        private volatile long lastSeenMillis = System.currentTimeMillis();
+
+        private HubState(SensorsSnapshotAvro snapshot, long sequence) {
+            this.snapshot = snapshot;
+            this.sequence = sequence;
+        }
+    }
+}
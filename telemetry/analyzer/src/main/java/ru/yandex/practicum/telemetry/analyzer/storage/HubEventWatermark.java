@@ -0,0 +1,23 @@
+package ru.yandex.practicum.telemetry.analyzer.storage;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class HubEventWatermark {
+
+    private final AtomicLong watermark = new AtomicLong(Long.MIN_VALUE);
+
+    public long current() {
+        return watermark.get();
+    }
+
+    public boolean covers(long recordTimestamp) {
+        return watermark.get() >= recordTimestamp;
+    }
+
+    public void advance(long timestamp) {
+        watermark.accumulateAndGet(timestamp, Math::max);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.telemetry.analyzer.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledCondition;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledScenario;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class ScenarioIndex {
+
+    private final ConcurrentMap<String, HubScenarios> hubs = new ConcurrentHashMap<>();
+    private final Set<String> knownEmptyHubs = ConcurrentHashMap.newKeySet();
+
+    public List<CompiledScenario> findByHubId(String hubId) {
+        HubScenarios hubScenarios = hubs.get(hubId);
+        return hubScenarios != null ? hubScenarios.scenarios() : List.of();
+    }
+
+    public List<CompiledScenario> findBySensors(String hubId, Collection<String> sensorIds) {
+        HubScenarios hubScenarios = hubs.get(hubId);
+        if (hubScenarios == null) {
+            return List.of();
+        }
+        if (sensorIds.size() == 1) {
+            return hubScenarios.bySensor().getOrDefault(sensorIds.iterator().next(), List.of());
+        }
+        Set<CompiledScenario> affected = new LinkedHashSet<>();
+        for (String sensorId : sensorIds) {
+            affected.addAll(hubScenarios.bySensor().getOrDefault(sensorId, List.of()));
+        }
+        return List.copyOf(affected);
+    }
+
+    public boolean isKnownEmpty(String hubId) {
+        return knownEmptyHubs.contains(hubId);
+    }
+
+    public void markEmpty(String hubId) {
+        knownEmptyHubs.add(hubId);
+    }
+
+    public void rebuild(Collection<CompiledScenario> scenarios) {
+        Map<String, HubScenarios> rebuilt = scenarios.stream()
+                .collect(Collectors.groupingBy(CompiledScenario::hubId,
+                        Collectors.collectingAndThen(Collectors.toList(), HubScenarios::of)));
+        hubs.clear();
+        hubs.putAll(rebuilt);
+        knownEmptyHubs.clear();
+        log.info("event=scenario-index-rebuilt hubs={} scenarios={}", rebuilt.size(), scenarios.size());
+    }
+
+    public void putScenario(CompiledScenario scenario) {
+        hubs.compute(scenario.hubId(), (hubId, current) ->
+                (current != null ? current : HubScenarios.EMPTY).with(scenario));
+        knownEmptyHubs.remove(scenario.hubId());
+    }
+
+    public void removeScenario(String hubId, String name) {
+        hubs.computeIfPresent(hubId, (id, current) -> current.without(name).orNull());
+    }
+
+    public void removeSensor(String hubId, String sensorId) {
+        hubs.computeIfPresent(hubId, (id, current) -> current.withoutSensor(sensorId).orNull());
+    }
+
+    private record HubScenarios(Map<String, CompiledScenario> byName,
+                                List<CompiledScenario> scenarios,
+                                Map<String, List<CompiledScenario>> bySensor) {
+
+        private static final HubScenarios EMPTY = new HubScenarios(Map.of(), List.of(), Map.of());
+
+        private static HubScenarios of(Collection<CompiledScenario> scenarios) {
+            Map<String, CompiledScenario> byName = new LinkedHashMap<>();
+            scenarios.forEach(scenario -> byName.put(scenario.name(), scenario));
+
+            Map<String, List<CompiledScenario>> bySensor = new HashMap<>();
+            for (CompiledScenario scenario : byName.values()) {
+                scenario.conditions().stream()
+                        .map(CompiledCondition::sensorId)
+                        .distinct()
+                        .forEach(sensorId -> bySensor.computeIfAbsent(sensorId, id -> new ArrayList<>()).add(scenario));
+            }
+            bySensor.replaceAll((sensorId, dependent) -> List.copyOf(dependent));
+
+            return new HubScenarios(
+                    Collections.unmodifiableMap(byName),
+                    List.copyOf(byName.values()),
+                    Collections.unmodifiableMap(bySensor)
+            );
+        }
+
+        private HubScenarios with(CompiledScenario scenario) {
+            Map<String, CompiledScenario> updated = new LinkedHashMap<>(byName);
+            updated.put(scenario.name(), scenario);
+            return of(updated.values());
+        }
+
+        private HubScenarios without(String name) {
+            if (!byName.containsKey(name)) {
+                return this;
+            }
+            Map<String, CompiledScenario> updated = new LinkedHashMap<>(byName);
+            updated.remove(name);
+            return of(updated.values());
+        }
+
+        private HubScenarios withoutSensor(String sensorId) {
+            if (scenarios.stream().noneMatch(scenario -> scenario.references(sensorId))) {
+                return this;
+            }
+            return of(scenarios.stream()
+                    .map(scenario -> scenario.references(sensorId) ? scenario.withoutSensor(sensorId) : scenario)
+                    .toList());
+        }
+
+        private HubScenarios orNull() {
+            return byName.isEmpty() ? null : this;
+        }
+    }
+}
@@ -12,15 +12,16 @@ import ru.yandex.practicum.kafka.telemetry.event.ScenarioConditionAvro;
 import ru.yandex.practicum.kafka.telemetry.event.ScenarioRemovedEventAvro;
 import ru.yandex.practicum.telemetry.analyzer.model.Action;
 import ru.yandex.practicum.telemetry.analyzer.model.ActionType;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledScenario;
 import ru.yandex.practicum.telemetry.analyzer.model.Condition;
 import ru.yandex.practicum.telemetry.analyzer.model.ConditionOperation;
 import ru.yandex.practicum.telemetry.analyzer.model.ConditionType;
 import ru.yandex.practicum.telemetry.analyzer.model.Scenario;
-import ru.yandex.practicum.telemetry.analyzer.model.Sensor;
 import ru.yandex.practicum.telemetry.analyzer.repository.ActionRepository;
 import ru.yandex.practicum.telemetry.analyzer.repository.ConditionRepository;
 import ru.yandex.practicum.telemetry.analyzer.repository.ScenarioRepository;
 import ru.yandex.practicum.telemetry.analyzer.repository.SensorRepository;
+import ru.yandex.practicum.telemetry.analyzer.util.ConditionValueMapper;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,64 +41,46 @@ public class ScenarioStorage {
 
     @Transactional
     public void handleDeviceAdded(String hubId, DeviceAddedEventAvro event) {
-        try {
-            sensorRepository.findById(event.getId())
-                    .map(existing -> {
-                        existing.setHubId(hubId);
-                        return existing;
-                    })
-                    .or(() -> java.util.Optional.of(Sensor.builder()
-                            .id(event.getId())
-                            .hubId(hubId)
-                            .build()))
-                    .ifPresent(sensorRepository::save);
-            log.info("event=hub-device-added hubId={} sensorId={}", hubId, event.getId());
-        } catch (Exception e) {
-            log.error("event=hub-device-added-failed hubId={} sensorId={}", hubId, event.getId(), e);
-        }
+        sensorRepository.upsertAll(hubId, new String[]{event.getId()});
+        log.info("event=hub-device-added hubId={} sensorId={}", hubId, event.getId());
     }
 
     @Transactional
     public void handleDeviceRemoved(DeviceRemovedEventAvro event) {
         String sensorId = event.getId();
-        try {
-            List<Scenario> scenarios = scenarioRepository.findAll();
-            for (Scenario scenario : scenarios) {
-                boolean conditionRemoved = scenario.getConditions().remove(sensorId) != null;
-                boolean actionRemoved = scenario.getActions().remove(sensorId) != null;
-                if (conditionRemoved || actionRemoved) {
-                    scenarioRepository.save(scenario);
-                }
-            }
-            sensorRepository.findById(sensorId).ifPresent(sensorRepository::delete);
-            log.info("event=hub-device-removed sensorId={}", sensorId);
-        } catch (Exception e) {
-            log.error("event=hub-device-remove-failed sensorId={}", sensorId, e);
+        List<Long> conditionIds = scenarioRepository.findConditionIdsBySensorId(sensorId);
+        List<Long> actionIds = scenarioRepository.findActionIdsBySensorId(sensorId);
+        scenarioRepository.deleteConditionLinksBySensorId(sensorId);
+        scenarioRepository.deleteActionLinksBySensorId(sensorId);
+        if (!conditionIds.isEmpty()) {
+            conditionRepository.deleteAllByIdInBatch(conditionIds);
+        }
+        if (!actionIds.isEmpty()) {
+            actionRepository.deleteAllByIdInBatch(actionIds);
         }
+        sensorRepository.deleteAllByIdInBatch(List.of(sensorId));
+        log.info("event=hub-device-removed sensorId={} conditions={} actions={}",
+                sensorId, conditionIds.size(), actionIds.size());
     }
 
     @Transactional
     public void handleScenarioAdded(String hubId, ScenarioAddedEventAvro scenarioAvro) {
-        try {
-            ensureSensorsExist(hubId, scenarioAvro);
+        ensureSensorsExist(hubId, scenarioAvro);
 
-            Scenario scenario = scenarioRepository.findByHubIdAndName(hubId, scenarioAvro.getName())
-                    .orElseGet(() -> Scenario.builder()
-                            .hubId(hubId)
-                            .name(scenarioAvro.getName())
-                            .build());
+        Scenario scenario = scenarioRepository.findByHubIdAndName(hubId, scenarioAvro.getName())
+                .orElseGet(() -> Scenario.builder()
+                        .hubId(hubId)
+                        .name(scenarioAvro.getName())
+                        .build());
 
-            scenario.getConditions().clear();
-            scenario.getActions().clear();
+        scenario.getConditions().clear();
+        scenario.getActions().clear();
 
-            scenario.getConditions().putAll(buildConditionsMap(scenarioAvro));
-            scenario.getActions().putAll(buildActionsMap(scenarioAvro));
+        scenario.getConditions().putAll(buildConditionsMap(scenarioAvro));
+        scenario.getActions().putAll(buildActionsMap(scenarioAvro));
 
-            scenarioRepository.save(scenario);
-            log.info("event=scenario-upserted hubId={} scenario={}", hubId, scenarioAvro.getName());
-        } catch (Exception e) {
-            log.error("event=scenario-upsert-failed hubId={} scenario={}", hubId, scenarioAvro.getName(), e);
-        }
+        scenarioRepository.save(scenario);
+        log.info("event=scenario-upserted hubId={} scenario={}", hubId, scenarioAvro.getName());
     }
 
     @Transactional
@@ -110,8 +93,10 @@ public class ScenarioStorage {
     }
 
     @Transactional(readOnly = true)
-    public List<Scenario> findByHubId(String hubId) {
-        return scenarioRepository.findByHubId(hubId);
+    public List<CompiledScenario> loadCompiledScenarios() {
+        return scenarioRepository.findAllBy().stream()
+                .map(CompiledScenario::from)
+                .toList();
     }
 
     private void ensureSensorsExist(String hubId, ScenarioAddedEventAvro scenarioAvro) {
@@ -119,16 +104,8 @@ public class ScenarioStorage {
         scenarioAvro.getConditions().forEach(c -> sensorIds.add(c.getSensorId()));
         scenarioAvro.getActions().forEach(a -> sensorIds.add(a.getSensorId()));
 
-        for (String sensorId : sensorIds) {
-            sensorRepository.findById(sensorId).ifPresentOrElse(sensor -> {
-                if (!hubId.equals(sensor.getHubId())) {
-                    sensor.setHubId(hubId);
-                    sensorRepository.save(sensor);
-                }
-            }, () -> sensorRepository.save(Sensor.builder()
-                    .id(sensorId)
-                    .hubId(hubId)
-                    .build()));
+        if (!sensorIds.isEmpty()) {
+            sensorRepository.upsertAll(hubId, sensorIds.toArray(String[]::new));
         }
     }
 
@@ -138,7 +115,7 @@ public class ScenarioStorage {
             Condition condition = Condition.builder()
                     .type(ConditionType.fromAvro(conditionAvro.getType()))
                     .operation(ConditionOperation.fromAvro(conditionAvro.getOperation()))
-                    .value(resolveConditionValue(conditionAvro))
+                    .value(ConditionValueMapper.fromAvro(conditionAvro))
                     .build();
             Condition saved = conditionRepository.save(condition);
             result.put(conditionAvro.getSensorId(), saved);
@@ -158,18 +135,4 @@ public class ScenarioStorage {
         }
         return result;
     }
-
-    private static Integer resolveConditionValue(ScenarioConditionAvro condition) {
-        Object value = condition.getValue();
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof Integer intValue) {
-            return intValue;
-        }
-        if (value instanceof Boolean boolValue) {
-            return boolValue ? 1 : 0;
-        }
-        throw new IllegalArgumentException("Неподдерживаемый тип значения условия: " + value.getClass());
-    }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.telemetry.analyzer.util;
+
+import ru.yandex.practicum.kafka.telemetry.event.ScenarioConditionAvro;
+
+public final class ConditionValueMapper {
+
+    private ConditionValueMapper() {
+    }
+
+    public static Integer fromAvro(ScenarioConditionAvro condition) {
+        Object value = condition.getValue();
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Integer intValue) {
+            return intValue;
+        }
+        if (value instanceof Boolean boolValue) {
+            return boolValue ? 1 : 0;
+        }
+        throw new IllegalArgumentException("Неподдерживаемый тип значения условия: " + value.getClass());
+    }
+}
@@ -43,6 +43,14 @@ CREATE TABLE IF NOT EXISTS scenario_actions (
     PRIMARY KEY (scenario_id, sensor_id, action_id)
 );
 
+-- создаём индексы для поиска связей сценариев по датчику при удалении устройства
+CREATE INDEX IF NOT EXISTS idx_scenario_conditions_sensor_id ON scenario_conditions(sensor_id);
+CREATE INDEX IF NOT EXISTS idx_scenario_actions_sensor_id ON scenario_actions(sensor_id);
+
+-- создаём индексы для проверки внешних ключей при удалении условий и действий
+CREATE INDEX IF NOT EXISTS idx_scenario_conditions_condition_id ON scenario_conditions(condition_id);
+CREATE INDEX IF NOT EXISTS idx_scenario_actions_action_id ON scenario_actions(action_id);
+
 -- создаём функцию для проверки, что связываемые сценарий и датчик работают с одним и тем же хабом
 CREATE OR REPLACE FUNCTION check_hub_id()
 RETURNS TRIGGER AS
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.kafka.deserializer.BaseAvroDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorEventDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotDeserializer;
+import ru.yandex.practicum.kafka.serializer.AvroSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvroDeserializerBenchmark {
+
+    private static final String TOPIC = "telemetry.snapshots.v1";
+
+    @Param({"1", "50", "500"})
+    private int sensorsPerHub;
+
+    private SensorEventDeserializer eventDeserializer;
+    private SensorsSnapshotDeserializer snapshotDeserializer;
+    private SensorEventDeserializer reusingEventDeserializer;
+    private SensorsSnapshotDeserializer reusingSnapshotDeserializer;
+    private SensorsSnapshotDeserializer headerOnlySnapshotDeserializer;
+    private byte[] eventBytes;
+    private byte[] snapshotBytes;
+
+    @Setup
+    public void setUp() {
+        eventDeserializer = new SensorEventDeserializer();
+        snapshotDeserializer = new SensorsSnapshotDeserializer();
+
+        reusingEventDeserializer = new SensorEventDeserializer();
+        reusingEventDeserializer.configure(Map.of(BaseAvroDeserializer.REUSE_RECORDS_CONFIG, true), false);
+        reusingSnapshotDeserializer = new SensorsSnapshotDeserializer();
+        reusingSnapshotDeserializer.configure(Map.of(BaseAvroDeserializer.REUSE_RECORDS_CONFIG, true), false);
+        headerOnlySnapshotDeserializer = new SensorsSnapshotDeserializer();
+        headerOnlySnapshotDeserializer.configure(Map.of(
+                BaseAvroDeserializer.REUSE_RECORDS_CONFIG, true,
+                SensorsSnapshotDeserializer.SKIP_SENSORS_STATE_CONFIG, true), false);
+
+        String hubId = TelemetryFixtures.hubId(0);
+        AvroSerializer serializer = new AvroSerializer();
+        eventBytes = serializer.serialize(TOPIC,
+                TelemetryFixtures.sensorEvent(hubId, 0, 0, TelemetryFixtures.BASE_TIMESTAMP));
+        snapshotBytes = serializer.serialize(TOPIC, TelemetryFixtures.snapshot(hubId, sensorsPerHub));
+    }
+
+    @Benchmark
+    public SensorEventAvro deserializeSensorEvent() {
+        return eventDeserializer.deserialize(TOPIC, eventBytes);
+    }
+
+    @Benchmark
+    public SensorsSnapshotAvro deserializeSnapshot() {
+        return snapshotDeserializer.deserialize(TOPIC, snapshotBytes);
+    }
+
+    @Benchmark
+    public SensorEventAvro deserializeSensorEventReusing() {
+        return reusingEventDeserializer.deserialize(TOPIC, eventBytes);
+    }
+
+    @Benchmark
+    public SensorsSnapshotAvro deserializeSnapshotReusing() {
+        return reusingSnapshotDeserializer.deserialize(TOPIC, snapshotBytes);
+    }
+
+    @Benchmark
+    public SensorsSnapshotAvro deserializeSnapshotHeaderOnly() {
+        return headerOnlySnapshotDeserializer.deserialize(TOPIC, snapshotBytes);
+    }
+}
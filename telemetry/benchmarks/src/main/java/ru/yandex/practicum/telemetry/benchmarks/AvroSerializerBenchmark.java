@@ -0,0 +1,63 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.kafka.serializer.AvroSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvroSerializerBenchmark {
+
+    private static final String TOPIC = "telemetry.snapshots.v1";
+
+    @Param({"1", "50", "500"})
+    private int sensorsPerHub;
+
+    private AvroSerializer serializer;
+    private SensorEventAvro event;
+    private SensorsSnapshotAvro snapshot;
+    private ByteBuffer target;
+
+    @Setup
+    public void setUp() {
+        serializer = new AvroSerializer();
+        String hubId = TelemetryFixtures.hubId(0);
+        event = TelemetryFixtures.sensorEvent(hubId, 0, 0, TelemetryFixtures.BASE_TIMESTAMP);
+        snapshot = TelemetryFixtures.snapshot(hubId, sensorsPerHub);
+        target = ByteBuffer.allocate(serializer.serialize(TOPIC, snapshot).length);
+    }
+
+    @Benchmark
+    public byte[] serializeSensorEvent() {
+        return serializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public byte[] serializeSnapshot() {
+        return serializer.serialize(TOPIC, snapshot);
+    }
+
+    @Benchmark
+    public int serializeSnapshotIntoBuffer() {
+        target.clear();
+        return serializer.serialize(TOPIC, snapshot, target);
+    }
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.StatusRuntimeException;
+import ru.yandex.practicum.grpc.telemetry.collector.CollectorControllerGrpc;
+import ru.yandex.practicum.grpc.telemetry.collector.CollectorControllerGrpc.CollectorControllerBlockingStub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public final class CollectorLoadTest {
+
+    private CollectorLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "localhost:59091";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int requestsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int connections = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+        System.out.printf("target=%s clients=%d requestsPerClient=%d connections=%d%n",
+                target, clients, requestsPerClient, connections);
+
+        List<ManagedChannel> channels = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            channels.add(ManagedChannelBuilder.forTarget(target).usePlaintext().build());
+        }
+
+        try {
+            run(channels, clients, Math.max(requestsPerClient / 10, 1));
+            Result result = run(channels, clients, requestsPerClient);
+            result.print();
+        } finally {
+            for (ManagedChannel channel : channels) {
+                channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static Result run(List<ManagedChannel> channels, int clients, int requestsPerClient) throws Exception {
+        long started = System.nanoTime();
+        List<Future<ClientResult>> futures = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                CollectorControllerBlockingStub stub =
+                        CollectorControllerGrpc.newBlockingStub(channels.get(client % channels.size()));
+                String hubId = TelemetryFixtures.hubId(client);
+                futures.add(executor.submit(() -> runClient(stub, hubId, requestsPerClient)));
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        long[] latencies = new long[clients * requestsPerClient];
+        int count = 0;
+        int errors = 0;
+        String firstError = null;
+        for (Future<ClientResult> future : futures) {
+            ClientResult clientResult = future.get();
+            System.arraycopy(clientResult.latencies, 0, latencies, count, clientResult.completed);
+            count += clientResult.completed;
+            errors += clientResult.errors;
+            if (firstError == null) {
+                firstError = clientResult.firstError;
+            }
+        }
+        long[] completed = Arrays.copyOf(latencies, count);
+        Arrays.sort(completed);
+        return new Result(completed, errors, firstError, elapsed);
+    }
+
+    private static ClientResult runClient(CollectorControllerBlockingStub stub, String hubId, int requests) {
+        long[] latencies = new long[requests];
+        int completed = 0;
+        int errors = 0;
+        String firstError = null;
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            try {
+                stub.collectSensorEvent(TelemetryFixtures.sensorEventProto(hubId, i % 50, i));
+                latencies[completed++] = System.nanoTime() - start;
+            } catch (StatusRuntimeException e) {
+                errors++;
+                if (firstError == null) {
+                    firstError = e.getStatus().toString();
+                }
+            }
+        }
+        return new ClientResult(latencies, completed, errors, firstError);
+    }
+
+    private record ClientResult(long[] latencies, int completed, int errors, String firstError) {
+    }
+
+    private record Result(long[] latencies, int errors, String firstError, long elapsedNanos) {
+
+        void print() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            System.out.printf("requests=%d errors=%d throughput=%.0f req/s%n",
+                    latencies.length, errors, latencies.length / seconds);
+            System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                    percentile(0.50), percentile(0.90), percentile(0.99), percentile(0.999), percentile(1.0));
+            if (firstError != null) {
+                System.out.println("first error: " + firstError);
+            }
+        }
+
+        private double percentile(double quantile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(quantile * latencies.length) - 1);
+            return latencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties;
+import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties.EvaluationMode;
+import ru.yandex.practicum.telemetry.analyzer.config.AnalyzerProperties.TriggerMode;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledScenario;
+import ru.yandex.practicum.telemetry.analyzer.model.ScenarioActionDecision;
+import ru.yandex.practicum.telemetry.analyzer.service.ScenarioEvaluator;
+import ru.yandex.practicum.telemetry.analyzer.service.ScenarioTriggerTracker;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScenarioEvaluatorBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int sensorsPerHub;
+
+    @Param({"INTERPRETED", "COMPILED"})
+    private EvaluationMode mode;
+
+    private ScenarioEvaluator evaluator;
+    private SensorsSnapshotAvro snapshot;
+    private List<CompiledScenario> scenarios;
+
+    @Setup
+    public void setUp() {
+        AnalyzerProperties properties = new AnalyzerProperties();
+        properties.getEvaluation().setMode(mode);
+        properties.getEvaluation().setTrigger(TriggerMode.LEVEL);
+        evaluator = new ScenarioEvaluator(properties, new ScenarioTriggerTracker());
+
+        String hubId = TelemetryFixtures.hubId(0);
+        snapshot = TelemetryFixtures.snapshot(hubId, sensorsPerHub);
+        scenarios = TelemetryFixtures.scenarios(hubId, sensorsPerHub);
+    }
+
+    @Benchmark
+    public List<ScenarioActionDecision> evaluate() {
+        return evaluator.evaluate(snapshot, scenarios);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.telemetry.mapper.sensor.ClimateSensorEventMapper;
+import ru.yandex.practicum.telemetry.mapper.sensor.LightSensorEventMapper;
+import ru.yandex.practicum.telemetry.mapper.sensor.MotionSensorEventMapper;
+import ru.yandex.practicum.telemetry.mapper.sensor.SensorEventMapper;
+import ru.yandex.practicum.telemetry.mapper.sensor.SwitchSensorEventMapper;
+import ru.yandex.practicum.telemetry.mapper.sensor.TemperatureSensorEventMapper;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorEventMapperBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int sensorsPerHub;
+
+    private Map<SensorEventProto.PayloadCase, SensorEventMapper> mappers;
+    private SensorEventProto[] readings;
+
+    @Setup
+    public void setUp() {
+        mappers = new EnumMap<>(SensorEventProto.PayloadCase.class);
+        List.of(
+                new ClimateSensorEventMapper(),
+                new LightSensorEventMapper(),
+                new MotionSensorEventMapper(),
+                new SwitchSensorEventMapper(),
+                new TemperatureSensorEventMapper()
+        ).forEach(mapper -> mappers.put(mapper.getPayloadCase(), mapper));
+
+        String hubId = TelemetryFixtures.hubId(0);
+        readings = new SensorEventProto[sensorsPerHub];
+        for (int sensor = 0; sensor < sensorsPerHub; sensor++) {
+            readings[sensor] = TelemetryFixtures.sensorEventProto(hubId, sensor, sensor);
+        }
+    }
+
+    @Benchmark
+    public void mapHubReadings(Blackhole blackhole) {
+        for (SensorEventProto reading : readings) {
+            SpecificRecordBase mapped = mappers.get(reading.getPayloadCase()).map(reading);
+            blackhole.consume(mapped);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.telemetry.aggregator.SensorsSnapshotAggregator;
+import ru.yandex.practicum.telemetry.aggregator.SnapshotUpdate;
+import ru.yandex.practicum.telemetry.aggregator.config.AggregatorProperties.SnapshotMode;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorsSnapshotAggregatorBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int sensorsPerHub;
+
+    @Param({"FULL", "DELTA"})
+    private SnapshotMode mode;
+
+    private SensorsSnapshotAggregator aggregator;
+    private String hubId;
+    private long counter;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        aggregator = new SensorsSnapshotAggregator(mode, 100, false);
+        hubId = TelemetryFixtures.hubId(0);
+        counter = 0;
+        for (int sensor = 0; sensor < sensorsPerHub; sensor++) {
+            aggregator.updateState(nextEvent());
+        }
+    }
+
+    @Benchmark
+    public Optional<SnapshotUpdate> updateState() {
+        return aggregator.updateState(nextEvent());
+    }
+
+    @Benchmark
+    public boolean applyEvent() {
+        return aggregator.applyEvent(nextEvent());
+    }
+
+    private SensorEventAvro nextEvent() {
+        long sequence = counter++;
+        int sensor = (int) (sequence % sensorsPerHub);
+        int reading = (int) (sequence / sensorsPerHub);
+        return TelemetryFixtures.sensorEvent(hubId, sensor, reading,
+                TelemetryFixtures.BASE_TIMESTAMP.plusMillis(sequence));
+    }
+}
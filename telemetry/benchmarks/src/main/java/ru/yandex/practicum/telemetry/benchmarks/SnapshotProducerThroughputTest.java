@@ -0,0 +1,93 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import ru.yandex.practicum.kafka.serializer.AvroSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.util.Properties;
+import java.util.UUID;
+
+public final class SnapshotProducerThroughputTest {
+
+    private static final String TOPIC = "telemetry.snapshots.bench";
+    private static final int HUBS = 64;
+
+    private SnapshotProducerThroughputTest() {
+    }
+
+    public static void main(String[] args) {
+        String bootstrapServers = args.length > 0 ? args[0] : "localhost:9092";
+        int records = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int sensorsPerHub = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+
+        System.out.printf("bootstrap=%s records=%d batchSize=%d sensorsPerHub=%d%n",
+                bootstrapServers, records, batchSize, sensorsPerHub);
+
+        SensorsSnapshotAvro[] snapshots = new SensorsSnapshotAvro[HUBS];
+        for (int hub = 0; hub < HUBS; hub++) {
+            snapshots[hub] = TelemetryFixtures.snapshot(TelemetryFixtures.hubId(hub), sensorsPerHub);
+        }
+
+        run("warmup", bootstrapServers, snapshots, records / 10, batchSize, Mode.PIPELINED, 1);
+        run("sync flush per batch", bootstrapServers, snapshots, records, batchSize, Mode.SYNC, 1);
+        run("pipelined", bootstrapServers, snapshots, records, batchSize, Mode.PIPELINED, 1);
+        run("transaction per batch", bootstrapServers, snapshots, records, batchSize, Mode.TRANSACTIONAL, 1);
+        run("transaction per 10 batches", bootstrapServers, snapshots, records, batchSize, Mode.TRANSACTIONAL, 10);
+    }
+
+    private static void run(String name, String bootstrapServers, SensorsSnapshotAvro[] snapshots,
+                            int records, int batchSize, Mode mode, int batchesPerTransaction) {
+        try (Producer<String, SpecificRecordBase> producer = createProducer(bootstrapServers, mode)) {
+            if (mode == Mode.TRANSACTIONAL) {
+                producer.initTransactions();
+            }
+
+            long started = System.nanoTime();
+            int batches = 0;
+            for (int sent = 0; sent < records; ) {
+                if (mode == Mode.TRANSACTIONAL && batches % batchesPerTransaction == 0) {
+                    producer.beginTransaction();
+                }
+                int end = Math.min(sent + batchSize, records);
+                for (; sent < end; sent++) {
+                    SensorsSnapshotAvro snapshot = snapshots[sent % snapshots.length];
+                    producer.send(new ProducerRecord<>(TOPIC, snapshot.getHubId(), snapshot));
+                }
+                batches++;
+                if (mode == Mode.SYNC) {
+                    producer.flush();
+                } else if (mode == Mode.TRANSACTIONAL
+                        && (batches % batchesPerTransaction == 0 || sent == records)) {
+                    producer.commitTransaction();
+                }
+            }
+            producer.flush();
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            System.out.printf("%-28s %10.0f records/s%n", name, records / seconds);
+        }
+    }
+
+    private static Producer<String, SpecificRecordBase> createProducer(String bootstrapServers, Mode mode) {
+        Properties config = new Properties();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, AvroSerializer.class.getName());
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        if (mode == Mode.TRANSACTIONAL) {
+            config.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, "snapshot-bench-" + UUID.randomUUID());
+        }
+        return new KafkaProducer<>(config);
+    }
+
+    private enum Mode {
+        SYNC,
+        PIPELINED,
+        TRANSACTIONAL
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import com.google.protobuf.Timestamp;
+import ru.yandex.practicum.grpc.telemetry.event.ClimateSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.LightSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.MotionSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.grpc.telemetry.event.SwitchSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.TemperatureSensorProto;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+import ru.yandex.practicum.telemetry.analyzer.model.ActionType;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledAction;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledCondition;
+import ru.yandex.practicum.telemetry.analyzer.model.CompiledScenario;
+import ru.yandex.practicum.telemetry.analyzer.model.ConditionOperation;
+import ru.yandex.practicum.telemetry.analyzer.model.ConditionType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class TelemetryFixtures {
+
+    static final Instant BASE_TIMESTAMP = Instant.parse("2024-01-01T00:00:00Z");
+
+    private TelemetryFixtures() {
+        throw new AssertionError("Утилитарный класс не должен быть инициализирован");
+    }
+
+    static String hubId(int hub) {
+        return "hub-" + hub;
+    }
+
+    static String sensorId(int sensor) {
+        return "sensor-" + sensor;
+    }
+
+    static Object payload(int sensor, int reading) {
+        return switch (sensor % 5) {
+            case 0 -> ClimateSensorAvro.newBuilder()
+                    .setTemperatureC(18 + reading % 10)
+                    .setHumidity(40 + reading % 20)
+                    .setCo2Level(400 + reading % 300)
+                    .build();
+            case 1 -> LightSensorAvro.newBuilder()
+                    .setLinkQuality(90)
+                    .setLuminosity(reading % 1000)
+                    .build();
+            case 2 -> MotionSensorAvro.newBuilder()
+                    .setLinkQuality(90)
+                    .setMotion(reading % 2 == 0)
+                    .setVoltage(220)
+                    .build();
+            case 3 -> SwitchSensorAvro.newBuilder()
+                    .setState(reading % 2 == 0)
+                    .build();
+            default -> TemperatureSensorAvro.newBuilder()
+                    .setTemperatureC(15 + reading % 15)
+                    .setTemperatureF(59 + reading % 27)
+                    .build();
+        };
+    }
+
+    static SensorEventAvro sensorEvent(String hubId, int sensor, int reading, Instant timestamp) {
+        return SensorEventAvro.newBuilder()
+                .setId(sensorId(sensor))
+                .setHubId(hubId)
+                .setTimestamp(timestamp)
+                .setPayload(payload(sensor, reading))
+                .build();
+    }
+
+    static SensorEventProto sensorEventProto(String hubId, int sensor, int reading) {
+        SensorEventProto.Builder builder = SensorEventProto.newBuilder()
+                .setId(sensorId(sensor))
+                .setHubId(hubId)
+                .setTimestamp(Timestamp.newBuilder()
+                        .setSeconds(BASE_TIMESTAMP.getEpochSecond() + reading)
+                        .build());
+        return switch (sensor % 5) {
+            case 0 -> builder.setClimateSensor(ClimateSensorProto.newBuilder()
+                    .setTemperatureC(18 + reading % 10)
+                    .setHumidity(40 + reading % 20)
+                    .setCo2Level(400 + reading % 300)).build();
+            case 1 -> builder.setLightSensor(LightSensorProto.newBuilder()
+                    .setLinkQuality(90)
+                    .setLuminosity(reading % 1000)).build();
+            case 2 -> builder.setMotionSensor(MotionSensorProto.newBuilder()
+                    .setLinkQuality(90)
+                    .setMotion(reading % 2 == 0)
+                    .setVoltage(220)).build();
+            case 3 -> builder.setSwitchSensor(SwitchSensorProto.newBuilder()
+                    .setState(reading % 2 == 0)).build();
+            default -> builder.setTemperatureSensor(TemperatureSensorProto.newBuilder()
+                    .setTemperatureC(15 + reading % 15)
+                    .setTemperatureF(59 + reading % 27)).build();
+        };
+    }
+
+    static SensorsSnapshotAvro snapshot(String hubId, int sensors) {
+        Map<String, SensorStateAvro> states = new HashMap<>();
+        for (int sensor = 0; sensor < sensors; sensor++) {
+            states.put(sensorId(sensor), SensorStateAvro.newBuilder()
+                    .setTimestamp(BASE_TIMESTAMP)
+                    .setData(payload(sensor, sensor))
+                    .build());
+        }
+        return SensorsSnapshotAvro.newBuilder()
+                .setHubId(hubId)
+                .setTimestamp(BASE_TIMESTAMP)
+                .setSensorsState(states)
+                .build();
+    }
+
+    static List<CompiledScenario> scenarios(String hubId, int sensors) {
+        List<CompiledScenario> scenarios = new ArrayList<>(sensors);
+        for (int sensor = 0; sensor < sensors; sensor++) {
+            int next = (sensor + 1) % sensors;
+            List<CompiledCondition> conditions = next == sensor
+                    ? List.of(condition(sensor))
+                    : List.of(condition(sensor), condition(next));
+            List<CompiledAction> actions = List.of(
+                    new CompiledAction(sensorId(sensor), ActionType.SET_VALUE, sensor));
+            scenarios.add(new CompiledScenario(hubId, "scenario-" + sensor, conditions, actions));
+        }
+        return scenarios;
+    }
+
+    private static CompiledCondition condition(int sensor) {
+        String sensorId = sensorId(sensor);
+        return switch (sensor % 5) {
+            case 0 -> new CompiledCondition(sensorId, ConditionType.CO2LEVEL, ConditionOperation.GREATER_THAN, 500);
+            case 1 -> new CompiledCondition(sensorId, ConditionType.LUMINOSITY, ConditionOperation.LOWER_THAN, 500);
+            case 2 -> new CompiledCondition(sensorId, ConditionType.MOTION, ConditionOperation.EQUALS, 1);
+            case 3 -> new CompiledCondition(sensorId, ConditionType.SWITCH, ConditionOperation.EQUALS, 1);
+            default -> new CompiledCondition(sensorId, ConditionType.TEMPERATURE, ConditionOperation.GREATER_THAN, 20);
+        };
+    }
+}
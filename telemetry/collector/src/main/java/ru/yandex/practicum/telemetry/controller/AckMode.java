@@ -0,0 +1,6 @@
+package ru.yandex.practicum.telemetry.controller;
+
+public enum AckMode {
+    IMMEDIATE,
+    ASYNC
+}
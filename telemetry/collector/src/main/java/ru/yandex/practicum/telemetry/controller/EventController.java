@@ -3,30 +3,89 @@ package ru.yandex.practicum.telemetry.controller;
 import com.google.protobuf.Empty;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.springframework.beans.factory.annotation.Value;
 import ru.yandex.practicum.grpc.telemetry.collector.CollectorControllerGrpc;
+import ru.yandex.practicum.grpc.telemetry.collector.SensorEventBatchRequest;
+import ru.yandex.practicum.grpc.telemetry.collector.SensorEventBatchResponse;
+import ru.yandex.practicum.grpc.telemetry.collector.SensorEventStatusProto;
+import ru.yandex.practicum.grpc.telemetry.collector.SensorEventStreamAck;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.telemetry.grpc.ConnectionInFlightLimiter;
 import ru.yandex.practicum.telemetry.service.TelemetryService;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
 @Slf4j
 @GrpcService
-@RequiredArgsConstructor
 public class EventController extends CollectorControllerGrpc.CollectorControllerImplBase {
 
     private final TelemetryService telemetryService;
+    private final ConnectionInFlightLimiter inFlightLimiter;
+    private final int ackBatchSize;
+    private final AckMode ackMode;
+
+    public EventController(TelemetryService telemetryService,
+                           ConnectionInFlightLimiter inFlightLimiter,
+                           @Value("${collector.stream.ack-batch-size:100}") int ackBatchSize,
+                           @Value("${collector.ack.mode:IMMEDIATE}") AckMode ackMode) {
+        this.telemetryService = telemetryService;
+        this.inFlightLimiter = inFlightLimiter;
+        this.ackBatchSize = Math.max(ackBatchSize, 1);
+        this.ackMode = ackMode;
+    }
 
     @Override
     public void collectSensorEvent(SensorEventProto request, StreamObserver<Empty> responseObserver) {
-        handle(() -> telemetryService.processSensor(request), responseObserver);
+        if (ackMode == AckMode.ASYNC) {
+            handleAsync(() -> telemetryService.processSensorAsync(request), responseObserver);
+        } else {
+            handle(() -> telemetryService.processSensor(request), responseObserver);
+        }
     }
 
     @Override
     public void collectHubEvent(HubEventProto request, StreamObserver<Empty> responseObserver) {
-        handle(() -> telemetryService.processHub(request), responseObserver);
+        if (ackMode == AckMode.ASYNC) {
+            handleAsync(() -> telemetryService.processHubAsync(request), responseObserver);
+        } else {
+            handle(() -> telemetryService.processHub(request), responseObserver);
+        }
+    }
+
+    @Override
+    public void collectSensorEventBatch(SensorEventBatchRequest request,
+                                       StreamObserver<SensorEventBatchResponse> responseObserver) {
+        try {
+            responseObserver.onNext(SensorEventBatchResponse.newBuilder()
+                    .addAllStatuses(telemetryService.processSensorBatch(request.getEventsList()))
+                    .build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("Не удалось обработать пакет событий датчиков", e);
+            responseObserver.onError(new StatusRuntimeException(
+                    Status.INTERNAL.withDescription(e.getLocalizedMessage()).withCause(e)
+            ));
+        }
+    }
+
+    @Override
+    public StreamObserver<SensorEventProto> collectSensorEventStream(StreamObserver<SensorEventStreamAck> responseObserver) {
+        ServerCallStreamObserver<SensorEventStreamAck> serverObserver =
+                (ServerCallStreamObserver<SensorEventStreamAck>) responseObserver;
+        SensorEventStream stream = new SensorEventStream(serverObserver);
+        serverObserver.disableAutoRequest();
+        serverObserver.setOnReadyHandler(stream::flushPendingAck);
+        serverObserver.request(1);
+        return stream;
     }
 
     private void handle(Runnable action, StreamObserver<Empty> observer) {
@@ -41,5 +100,145 @@ public class EventController extends CollectorControllerGrpc.CollectorController
             ));
         }
     }
-}
 
+    private void handleAsync(Supplier<CompletableFuture<Void>> action, StreamObserver<Empty> observer) {
+        Optional<Runnable> permit = inFlightLimiter.tryAcquire();
+        if (permit.isEmpty()) {
+            observer.onError(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Превышено число неподтверждённых запросов для соединения")
+                    .asRuntimeException());
+            return;
+        }
+        Runnable release = permit.get();
+
+        CompletableFuture<Void> result;
+        try {
+            result = action.get();
+        } catch (Exception e) {
+            release.run();
+            failAsync(observer, e);
+            return;
+        }
+
+        result.whenComplete((ignored, error) -> {
+            release.run();
+            if (error == null) {
+                observer.onNext(Empty.getDefaultInstance());
+                observer.onCompleted();
+            } else {
+                failAsync(observer, error);
+            }
+        });
+    }
+
+    private void failAsync(StreamObserver<Empty> observer, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            observer.onError(Status.RESOURCE_EXHAUSTED.withDescription(cause.getMessage()).withCause(cause).asRuntimeException());
+            return;
+        }
+        log.error("Не удалось доставить событие телеметрии в Kafka", cause);
+        observer.onError(new StatusRuntimeException(
+                Status.UNAVAILABLE.withDescription(cause.getLocalizedMessage()).withCause(cause)
+        ));
+    }
+
+    private final class SensorEventStream implements StreamObserver<SensorEventProto> {
+
+        private final ServerCallStreamObserver<SensorEventStreamAck> responseObserver;
+        private long accepted;
+        private long rejected;
+        private int outstanding;
+        private int unacknowledged;
+        private boolean ackPending;
+        private boolean halfClosed;
+        private boolean finished;
+
+        private SensorEventStream(ServerCallStreamObserver<SensorEventStreamAck> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(SensorEventProto event) {
+            CompletableFuture<SensorEventStatusProto> result;
+            try {
+                result = telemetryService.processSensorStreamed(event);
+            } catch (Exception e) {
+                log.error("Не удалось обработать событие датчика из потока, hubId={} id={}",
+                        event.getHubId(), event.getId(), e);
+                result = CompletableFuture.completedFuture(SensorEventStatusProto.REJECTED);
+            }
+
+            boolean requestNext;
+            synchronized (this) {
+                outstanding++;
+                requestNext = outstanding < ackBatchSize;
+            }
+            if (requestNext) {
+                responseObserver.request(1);
+            }
+            result.thenAccept(this::onResult);
+        }
+
+        @Override
+        public synchronized void onError(Throwable t) {
+            finished = true;
+            log.warn("event=sensor-stream-aborted accepted={} rejected={} outstanding={} status={}",
+                    accepted, rejected, outstanding, Status.fromThrowable(t).getCode());
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            halfClosed = true;
+            finishIfDrained();
+        }
+
+        private void onResult(SensorEventStatusProto status) {
+            boolean requestNext;
+            synchronized (this) {
+                if (status == SensorEventStatusProto.ACCEPTED) {
+                    accepted++;
+                } else {
+                    rejected++;
+                }
+                requestNext = outstanding-- == ackBatchSize && !halfClosed && !finished;
+                if (++unacknowledged >= ackBatchSize) {
+                    ackPending = true;
+                    flushPendingAck();
+                }
+                finishIfDrained();
+            }
+            if (requestNext) {
+                responseObserver.request(1);
+            }
+        }
+
+        private synchronized void flushPendingAck() {
+            if (finished || !ackPending || responseObserver.isCancelled() || !responseObserver.isReady()) {
+                return;
+            }
+            responseObserver.onNext(ack());
+            unacknowledged = 0;
+            ackPending = false;
+        }
+
+        private void finishIfDrained() {
+            if (!halfClosed || finished || outstanding > 0) {
+                return;
+            }
+            finished = true;
+            if (!responseObserver.isCancelled()) {
+                responseObserver.onNext(ack());
+                responseObserver.onCompleted();
+            }
+            log.debug("event=sensor-stream-completed accepted={} rejected={}", accepted, rejected);
+        }
+
+        private SensorEventStreamAck ack() {
+            return SensorEventStreamAck.newBuilder()
+                    .setAccepted(accepted)
+                    .setRejected(rejected)
+                    .build();
+        }
+    }
+}
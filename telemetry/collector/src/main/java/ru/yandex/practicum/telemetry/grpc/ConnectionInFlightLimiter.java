@@ -0,0 +1,58 @@
+package ru.yandex.practicum.telemetry.grpc;
+
+import io.grpc.Attributes;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerTransportFilter;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+@Component
+@GrpcGlobalServerInterceptor
+public class ConnectionInFlightLimiter extends ServerTransportFilter implements ServerInterceptor {
+
+    private static final Attributes.Key<Semaphore> TRANSPORT_PERMITS = Attributes.Key.create("collector-in-flight-permits");
+    private static final Context.Key<Semaphore> CALL_PERMITS = Context.key("collector-in-flight-permits");
+    private static final Runnable NO_OP = () -> {
+    };
+
+    private final int maxInFlightPerConnection;
+
+    public ConnectionInFlightLimiter(@Value("${collector.ack.max-in-flight-per-connection:256}") int maxInFlightPerConnection) {
+        this.maxInFlightPerConnection = Math.max(maxInFlightPerConnection, 1);
+    }
+
+    @Override
+    public Attributes transportReady(Attributes transportAttrs) {
+        return transportAttrs.toBuilder()
+                .set(TRANSPORT_PERMITS, new Semaphore(maxInFlightPerConnection))
+                .build();
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        Semaphore permits = call.getAttributes().get(TRANSPORT_PERMITS);
+        if (permits == null) {
+            return next.startCall(call, headers);
+        }
+        return Contexts.interceptCall(Context.current().withValue(CALL_PERMITS, permits), call, headers, next);
+    }
+
+    public Optional<Runnable> tryAcquire() {
+        Semaphore permits = CALL_PERMITS.get();
+        if (permits == null) {
+            return Optional.of(NO_OP);
+        }
+        return permits.tryAcquire() ? Optional.of(permits::release) : Optional.empty();
+    }
+}
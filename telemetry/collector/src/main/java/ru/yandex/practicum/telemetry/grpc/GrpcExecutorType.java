@@ -0,0 +1,6 @@
+package ru.yandex.practicum.telemetry.grpc;
+
+public enum GrpcExecutorType {
+    DEFAULT,
+    VIRTUAL
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.telemetry.grpc;
+
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Configuration
+public class GrpcServerConfiguration {
+
+    @Bean
+    public GrpcServerConfigurer inFlightLimiterConfigurer(ConnectionInFlightLimiter limiter) {
+        return serverBuilder -> serverBuilder.addTransportFilter(limiter);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "collector.grpc.executor", havingValue = "VIRTUAL")
+    public ExecutorService grpcCallExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-call-", 0).factory());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "collector.grpc.executor", havingValue = "VIRTUAL")
+    public GrpcServerConfigurer executorConfigurer(ExecutorService grpcCallExecutor) {
+        log.info("event=grpc-executor-configured type={}", GrpcExecutorType.VIRTUAL);
+        return serverBuilder -> serverBuilder.executor(grpcCallExecutor);
+    }
+}
@@ -1,5 +1,8 @@
 package ru.yandex.practicum.telemetry.kafka;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.kafka.KafkaClientMetrics;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.specific.SpecificRecordBase;
@@ -10,15 +13,27 @@ import ru.yandex.practicum.kafka.serializer.AvroSerializer;
 
 import java.time.Duration;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 public class KafkaSender {
 
     private final Producer<String, SpecificRecordBase> producer;
+    private final MeterRegistry meterRegistry;
+    private final KafkaClientMetrics producerMetrics;
+    private final ConcurrentMap<String, SendTimers> sendTimers = new ConcurrentHashMap<>();
 
     public KafkaSender(
-            @Value("${kafka.bootstrap-servers}") String bootstrapServers
+            @Value("${kafka.bootstrap-servers}") String bootstrapServers,
+            @Value("${kafka.producer.linger-ms:0}") int lingerMs,
+            @Value("${kafka.producer.batch-size:16384}") int batchSize,
+            @Value("${kafka.producer.compression-type:none}") String compressionType,
+            @Value("${kafka.producer.max-block-ms:60000}") long maxBlockMs,
+            MeterRegistry meterRegistry
     ) {
         Properties config = new Properties();
 
@@ -27,21 +42,60 @@ public class KafkaSender {
                 "org.apache.kafka.common.serialization.StringSerializer");
         config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
                 AvroSerializer.class.getName());
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
 
         this.producer = new KafkaProducer<>(config);
+        this.meterRegistry = meterRegistry;
+        this.producerMetrics = new KafkaClientMetrics(producer);
+        this.producerMetrics.bindTo(meterRegistry);
+        log.info("Kafka producer создан: lingerMs={} batchSize={} compression={} maxBlockMs={}",
+                lingerMs, batchSize, compressionType, maxBlockMs);
     }
 
-    public void send(String topic, SpecificRecordBase record) {
+    public CompletableFuture<RecordMetadata> send(String topic, String key, SpecificRecordBase record) {
+        CompletableFuture<RecordMetadata> result = new CompletableFuture<>();
+        SendTimers timers = sendTimers.computeIfAbsent(topic, this::createSendTimers);
+        long startedAt = System.nanoTime();
         try {
-            producer.send(new ProducerRecord<>(topic, record));
-            log.info("Сообщение успешно отправлено в топик {}", topic);
+            producer.send(new ProducerRecord<>(topic, key, record), (metadata, exception) -> {
+                long elapsed = System.nanoTime() - startedAt;
+                if (exception != null) {
+                    timers.failure().record(elapsed, TimeUnit.NANOSECONDS);
+                    log.warn("Kafka не подтвердила сообщение для топика {} (key={}): {}", topic, key, exception.toString());
+                    result.completeExceptionally(exception);
+                } else {
+                    timers.success().record(elapsed, TimeUnit.NANOSECONDS);
+                    log.debug("Сообщение успешно отправлено в топик {} (partition={}, offset={})",
+                            topic, metadata.partition(), metadata.offset());
+                    result.complete(metadata);
+                }
+            });
+            return result;
         } catch (Exception e) {
+            timers.failure().record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
             throw new RuntimeException("Не удалось отправить сообщение в топик " + topic, e);
         }
     }
 
+    private SendTimers createSendTimers(String topic) {
+        return new SendTimers(sendTimer(topic, "success"), sendTimer(topic, "error"));
+    }
+
+    private Timer sendTimer(String topic, String outcome) {
+        return Timer.builder("collector.kafka.send")
+                .description("Время от отправки записи в Kafka до подтверждения брокером")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     @PreDestroy
     public void close() {
+        producerMetrics.close();
         try {
             producer.flush();
             producer.close(Duration.ofMillis(10));
@@ -50,4 +104,7 @@ public class KafkaSender {
             log.warn("Ошибка при закрытии Kafka producer", e);
         }
     }
-}
\ No newline at end of file
+
+    private record SendTimers(Timer success, Timer failure) {
+    }
+}
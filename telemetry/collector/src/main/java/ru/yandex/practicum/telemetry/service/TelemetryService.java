@@ -1,16 +1,30 @@
 package ru.yandex.practicum.telemetry.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.grpc.telemetry.collector.SensorEventStatusProto;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
 import ru.yandex.practicum.telemetry.kafka.KafkaSender;
 import ru.yandex.practicum.telemetry.mapper.hub.HubEventMapper;
 import ru.yandex.practicum.telemetry.mapper.sensor.SensorEventMapper;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -24,12 +38,22 @@ public class TelemetryService {
 
     private final String sensorsTopic;
     private final String hubsTopic;
+    private final Duration batchSendTimeout;
+
+    private final Timer syncProcessTimer;
+    private final Timer asyncProcessTimer;
+    private final Timer batchProcessTimer;
+    private final Timer streamProcessTimer;
+    private final DistributionSummary batchSize;
+    private final Counter rejectedEvents;
 
     public TelemetryService(List<SensorEventMapper> sensorMappers,
                             List<HubEventMapper> hubMappers,
                             KafkaSender kafkaSender,
                             @Value("${kafka.topic.sensors}") String sensorsTopic,
-                            @Value("${kafka.topic.hubs}") String hubsTopic) {
+                            @Value("${kafka.topic.hubs}") String hubsTopic,
+                            @Value("${collector.batch.send-timeout-ms:10000}") long batchSendTimeoutMs,
+                            MeterRegistry meterRegistry) {
 
         this.sensorMappers = sensorMappers.stream()
                 .collect(Collectors.toMap(SensorEventMapper::getPayloadCase, Function.identity()));
@@ -40,35 +64,156 @@ public class TelemetryService {
         this.kafkaSender = kafkaSender;
         this.sensorsTopic = sensorsTopic;
         this.hubsTopic = hubsTopic;
+        this.batchSendTimeout = Duration.ofMillis(batchSendTimeoutMs);
+
+        this.syncProcessTimer = processTimer(meterRegistry, "sync");
+        this.asyncProcessTimer = processTimer(meterRegistry, "async");
+        this.batchProcessTimer = processTimer(meterRegistry, "batch");
+        this.streamProcessTimer = processTimer(meterRegistry, "stream");
+        this.batchSize = DistributionSummary.builder("collector.sensor.batch.size")
+                .description("Количество событий датчиков в одном пакетном запросе")
+                .register(meterRegistry);
+        this.rejectedEvents = Counter.builder("collector.sensor.rejected")
+                .description("События датчиков, отклонённые из-за отсутствия или неподдерживаемого payload")
+                .register(meterRegistry);
+    }
+
+    public boolean processSensor(SensorEventProto event) {
+        long startedAt = System.nanoTime();
+        SpecificRecordBase record = mapSensor(event);
+        if (record == null) {
+            return false;
+        }
+        kafkaSender.send(sensorsTopic, event.getHubId(), record);
+        syncProcessTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return true;
     }
 
-    public void processSensor(SensorEventProto event) {
+    public List<SensorEventStatusProto> processSensorBatch(List<SensorEventProto> events) {
+        long startedAt = System.nanoTime();
+        batchSize.record(events.size());
+        List<Future<RecordMetadata>> results = new ArrayList<>(events.size());
+        for (SensorEventProto event : events) {
+            SpecificRecordBase record = mapSensor(event);
+            results.add(record != null ? sendQuietly(event.getHubId(), record) : null);
+        }
+
+        long deadline = System.nanoTime() + batchSendTimeout.toNanos();
+        List<SensorEventStatusProto> statuses = new ArrayList<>(results.size());
+        int failed = 0;
+        for (Future<RecordMetadata> result : results) {
+            SensorEventStatusProto status = awaitStatus(result, deadline);
+            if (status == SensorEventStatusProto.FAILED) {
+                failed++;
+            }
+            statuses.add(status);
+        }
+        batchProcessTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        log.debug("event=sensor-batch-processed size={} failed={}", events.size(), failed);
+        return statuses;
+    }
+
+    public CompletableFuture<Void> processSensorAsync(SensorEventProto event) {
+        long startedAt = System.nanoTime();
+        SpecificRecordBase record = mapSensor(event);
+        if (record == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return kafkaSender.send(sensorsTopic, event.getHubId(), record)
+                .whenComplete((metadata, exception) ->
+                        asyncProcessTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS))
+                .thenApply(metadata -> null);
+    }
+
+    public CompletableFuture<SensorEventStatusProto> processSensorStreamed(SensorEventProto event) {
+        long startedAt = System.nanoTime();
+        SpecificRecordBase record = mapSensor(event);
+        if (record == null) {
+            return CompletableFuture.completedFuture(SensorEventStatusProto.REJECTED);
+        }
+        return sendQuietly(event.getHubId(), record)
+                .handle((metadata, exception) -> {
+                    streamProcessTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    return exception == null ? SensorEventStatusProto.ACCEPTED : SensorEventStatusProto.FAILED;
+                });
+    }
+
+    public void processHub(HubEventProto event) {
+        SpecificRecordBase record = mapHub(event);
+        if (record != null) {
+            kafkaSender.send(hubsTopic, event.getHubId(), record);
+        }
+    }
+
+    public CompletableFuture<Void> processHubAsync(HubEventProto event) {
+        SpecificRecordBase record = mapHub(event);
+        if (record == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return kafkaSender.send(hubsTopic, event.getHubId(), record).thenApply(metadata -> null);
+    }
+
+    private SpecificRecordBase mapSensor(SensorEventProto event) {
         SensorEventProto.PayloadCase payloadCase = event.getPayloadCase();
         if (payloadCase == SensorEventProto.PayloadCase.PAYLOAD_NOT_SET) {
             log.warn("Получено событие датчика без payload, id={}", event.getId());
-            return;
+            rejectedEvents.increment();
+            return null;
         }
 
         SensorEventMapper mapper = sensorMappers.get(payloadCase);
         if (mapper == null) {
             log.warn("Неподдерживаемый тип события датчика {}", payloadCase);
-            return;
+            rejectedEvents.increment();
+            return null;
         }
-        kafkaSender.send(sensorsTopic, mapper.map(event));
+        return mapper.map(event);
     }
 
-    public void processHub(HubEventProto event) {
+    private SpecificRecordBase mapHub(HubEventProto event) {
         HubEventProto.PayloadCase payloadCase = event.getPayloadCase();
         if (payloadCase == HubEventProto.PayloadCase.PAYLOAD_NOT_SET) {
             log.warn("Получено событие хаба без payload, hubId={}", event.getHubId());
-            return;
+            return null;
         }
 
         HubEventMapper mapper = hubMappers.get(payloadCase);
         if (mapper == null) {
             log.warn("Неподдерживаемый тип события хаба {}", payloadCase);
-            return;
+            return null;
+        }
+        return mapper.map(event);
+    }
+
+    private CompletableFuture<RecordMetadata> sendQuietly(String hubId, SpecificRecordBase record) {
+        try {
+            return kafkaSender.send(sensorsTopic, hubId, record);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Timer processTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("collector.sensor.process")
+                .description("Время обработки события датчика коллектором")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static SensorEventStatusProto awaitStatus(Future<RecordMetadata> result, long deadline) {
+        if (result == null) {
+            return SensorEventStatusProto.REJECTED;
+        }
+        try {
+            result.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            return SensorEventStatusProto.ACCEPTED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SensorEventStatusProto.FAILED;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Событие датчика из пакета не подтверждено Kafka: {}", e.toString());
+            return SensorEventStatusProto.FAILED;
         }
-        kafkaSender.send(hubsTopic, mapper.map(event));
     }
 }
\ No newline at end of file
@@ -1,8 +1,8 @@
 package ru.yandex.practicum.kafka.deserializer;
 
 import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificRecordBase;
@@ -10,23 +10,36 @@ import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Objects;
 
 public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deserializer<T> {
 
+    public static final String REUSE_RECORDS_CONFIG = "avro.deserializer.reuse-records";
+
     private final DecoderFactory decoderFactory;
-    private final DatumReader<T> reader;
+    private final Schema schema;
+    private DatumReader<T> reader;
+
+    private boolean reuseRecords;
+    private BinaryDecoder decoder;
+    private T reused;
 
     public BaseAvroDeserializer(Schema schema) {
         this(DecoderFactory.get(), schema);
     }
 
     public BaseAvroDeserializer(DecoderFactory decoderFactory, Schema schema) {
-        Objects.requireNonNull(schema, "Схема требуется для десериализации Avro");
+        this.schema = Objects.requireNonNull(schema, "Схема требуется для десериализации Avro");
         this.decoderFactory = Objects.requireNonNull(decoderFactory, "Требуется DecoderFactory");
         this.reader = new SpecificDatumReader<>(schema);
     }
 
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        reuseRecords = isEnabled(configs, REUSE_RECORDS_CONFIG);
+    }
+
     @Override
     public T deserialize(String topic, byte[] data) {
         if (data == null || data.length == 0) {
@@ -34,7 +47,11 @@ public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deser
         }
 
         try {
-            Decoder decoder = decoderFactory.binaryDecoder(data, null);
+            decoder = decoderFactory.binaryDecoder(data, decoder);
+            if (reuseRecords) {
+                reused = reader.read(reused, decoder);
+                return reused;
+            }
             return reader.read(null, decoder);
         } catch (IOException e) {
             throw new SerializationException(
@@ -45,7 +62,16 @@ public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deser
 
     @Override
     public void close() {
+        decoder = null;
+        reused = null;
+    }
 
+    protected void useReaderSchema(Schema readerSchema) {
+        this.reader = new SpecificDatumReader<>(schema, readerSchema);
+        this.reused = null;
     }
-}
 
+    protected static boolean isEnabled(Map<String, ?> configs, String key) {
+        return Boolean.parseBoolean(String.valueOf(configs.get(key)));
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import org.apache.avro.Schema;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotDeltaAvro;
+
+public class SensorsSnapshotDeltaDeserializer extends BaseAvroDeserializer<SensorsSnapshotDeltaAvro> {
+
+    public SensorsSnapshotDeltaDeserializer() {
+        super(SensorsSnapshotDeltaAvro.getClassSchema());
+    }
+
+    public SensorsSnapshotDeltaDeserializer(Schema schema) {
+        super(schema);
+    }
+}
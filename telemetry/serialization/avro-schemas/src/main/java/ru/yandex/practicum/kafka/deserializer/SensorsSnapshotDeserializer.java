@@ -3,8 +3,14 @@ package ru.yandex.practicum.kafka.deserializer;
 import org.apache.avro.Schema;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
 
+import java.util.Map;
+
 public class SensorsSnapshotDeserializer extends BaseAvroDeserializer<SensorsSnapshotAvro> {
 
+    public static final String SKIP_SENSORS_STATE_CONFIG = "avro.snapshot.skip-sensors-state";
+
+    private static final String SENSORS_STATE_FIELD = "sensorsState";
+
     public SensorsSnapshotDeserializer() {
         super(SensorsSnapshotAvro.getClassSchema());
     }
@@ -12,4 +18,25 @@ public class SensorsSnapshotDeserializer extends BaseAvroDeserializer<SensorsSna
     public SensorsSnapshotDeserializer(Schema schema) {
         super(schema);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        super.configure(configs, isKey);
+        if (isEnabled(configs, SKIP_SENSORS_STATE_CONFIG)) {
+            useReaderSchema(withoutSensorsState(SensorsSnapshotAvro.getClassSchema()));
+        }
+    }
+
+    private static Schema withoutSensorsState(Schema schema) {
+        return Schema.createRecord(
+                schema.getName(),
+                schema.getDoc(),
+                schema.getNamespace(),
+                false,
+                schema.getFields().stream()
+                        .filter(field -> !SENSORS_STATE_FIELD.equals(field.name()))
+                        .map(field -> new Schema.Field(field, field.schema()))
+                        .toList()
+        );
+    }
+}
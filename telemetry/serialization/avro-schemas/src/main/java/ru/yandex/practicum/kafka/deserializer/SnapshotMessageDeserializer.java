@@ -0,0 +1,39 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import ru.yandex.practicum.kafka.header.SnapshotHeaders;
+
+import java.util.Map;
+
+public class SnapshotMessageDeserializer implements Deserializer<SpecificRecordBase> {
+
+    private final SensorsSnapshotDeserializer snapshotDeserializer = new SensorsSnapshotDeserializer();
+    private final SensorsSnapshotDeltaDeserializer deltaDeserializer = new SensorsSnapshotDeltaDeserializer();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        snapshotDeserializer.configure(configs, isKey);
+        deltaDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public SpecificRecordBase deserialize(String topic, byte[] data) {
+        return snapshotDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public SpecificRecordBase deserialize(String topic, Headers headers, byte[] data) {
+        if (SnapshotHeaders.isDelta(headers)) {
+            return deltaDeserializer.deserialize(topic, data);
+        }
+        return snapshotDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        snapshotDeserializer.close();
+        deltaDeserializer.close();
+    }
+}
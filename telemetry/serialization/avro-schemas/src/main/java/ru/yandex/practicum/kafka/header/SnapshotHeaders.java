@@ -0,0 +1,83 @@
+package ru.yandex.practicum.kafka.header;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.OptionalLong;
+import java.util.Set;
+
+public final class SnapshotHeaders {
+
+    public static final String CHANGED_SENSOR = "changed-sensor-id";
+    public static final String FORMAT = "snapshot-format";
+    public static final String SEQUENCE = "snapshot-sequence";
+    public static final String DELTA_BASE = "snapshot-delta-base";
+
+    public static final String FORMAT_FULL = "full";
+    public static final String FORMAT_DELTA = "delta";
+
+    private SnapshotHeaders() {
+        throw new AssertionError("Утилитарный класс не должен быть инициализирован");
+    }
+
+    public static void addChangedSensor(Headers headers, String sensorId) {
+        headers.add(CHANGED_SENSOR, sensorId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Set<String> changedSensors(Headers headers) {
+        Set<String> sensorIds = new LinkedHashSet<>();
+        for (Header header : headers.headers(CHANGED_SENSOR)) {
+            if (header.value() != null) {
+                sensorIds.add(new String(header.value(), StandardCharsets.UTF_8));
+            }
+        }
+        return sensorIds;
+    }
+
+    public static void setFormat(Headers headers, String format) {
+        headers.remove(FORMAT);
+        headers.add(FORMAT, format.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static boolean isDelta(Headers headers) {
+        if (headers == null) {
+            return false;
+        }
+        Header header = headers.lastHeader(FORMAT);
+        return header != null && header.value() != null
+                && FORMAT_DELTA.equals(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    public static void markDeltaBase(Headers headers) {
+        headers.remove(DELTA_BASE);
+        headers.add(DELTA_BASE, Boolean.TRUE.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static boolean isDeltaBase(Headers headers) {
+        if (headers == null) {
+            return false;
+        }
+        Header header = headers.lastHeader(DELTA_BASE);
+        return header != null && header.value() != null
+                && Boolean.parseBoolean(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    public static void setSequence(Headers headers, long sequence) {
+        headers.remove(SEQUENCE);
+        headers.add(SEQUENCE, Long.toString(sequence).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OptionalLong sequence(Headers headers) {
+        Header header = headers.lastHeader(SEQUENCE);
+        if (header == null || header.value() == null) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Long.parseLong(new String(header.value(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.kafka.serializer;
 
+import org.apache.avro.Schema;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
@@ -10,30 +11,109 @@ import org.apache.kafka.common.serialization.Serializer;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public final class AvroSerializer implements Serializer<SpecificRecordBase> {
 
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_POOLED_CONTEXTS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final BlockingQueue<EncoderContext> CONTEXTS = new ArrayBlockingQueue<>(MAX_POOLED_CONTEXTS);
+
     private final EncoderFactory encoderFactory = EncoderFactory.get();
+    private final ConcurrentMap<Schema, DatumWriter<SpecificRecordBase>> writers = new ConcurrentHashMap<>();
 
     @Override
     public byte[] serialize(String topic, SpecificRecordBase data) {
         if (data == null) return null;
 
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            BinaryEncoder encoder = encoderFactory.binaryEncoder(out, null);
+        EncoderContext context = acquire();
+        try {
+            context.buffer.reset();
+            write(context, context.buffer, data);
+            byte[] bytes = context.buffer.toByteArray();
+            release(context);
+            return bytes;
 
-            DatumWriter<SpecificRecordBase> writer =
-                    new SpecificDatumWriter<>(data.getSchema());
+        } catch (IOException | RuntimeException ex) {
+            throw new SerializationException(
+                    "Ошибка сериализации Avro для топика: " + topic, ex
+            );
+        }
+    }
 
-            writer.write(data, encoder);
-            encoder.flush();
+    public int serialize(String topic, SpecificRecordBase data, ByteBuffer target) {
+        if (data == null) return 0;
 
-            return out.toByteArray();
+        EncoderContext context = acquire();
+        int start = target.position();
+        try {
+            context.target.target = target;
+            write(context, context.target, data);
+            release(context);
+            return target.position() - start;
 
-        } catch (IOException ex) {
+        } catch (IOException | RuntimeException ex) {
+            target.position(start);
             throw new SerializationException(
                     "Ошибка сериализации Avro для топика: " + topic, ex
             );
         }
     }
-}
\ No newline at end of file
+
+    private static EncoderContext acquire() {
+        EncoderContext context = CONTEXTS.poll();
+        return context != null ? context : new EncoderContext();
+    }
+
+    private static void release(EncoderContext context) {
+        context.target.target = null;
+        context.releaseOversizedBuffer();
+        CONTEXTS.offer(context);
+    }
+
+    private void write(EncoderContext context, OutputStream out, SpecificRecordBase data) throws IOException {
+        BinaryEncoder encoder = encoderFactory.binaryEncoder(out, context.encoder);
+        context.encoder = encoder;
+
+        writer(data.getSchema()).write(data, encoder);
+        encoder.flush();
+    }
+
+    private DatumWriter<SpecificRecordBase> writer(Schema schema) {
+        return writers.computeIfAbsent(schema, SpecificDatumWriter::new);
+    }
+
+    private static final class EncoderContext {
+
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        private final ByteBufferOutputStream target = new ByteBufferOutputStream();
+        private BinaryEncoder encoder;
+
+        private void releaseOversizedBuffer() {
+            if (buffer.size() > MAX_RETAINED_BUFFER_SIZE) {
+                buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+            }
+        }
+    }
+
+    private static final class ByteBufferOutputStream extends OutputStream {
+
+        private ByteBuffer target;
+
+        @Override
+        public void write(int b) {
+            target.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target.put(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.kafka.serializer;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AvroSerializerTest {
+
+    private static final String TOPIC = "telemetry.snapshots.v1";
+    private static final Instant TIMESTAMP = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final AvroSerializer serializer = new AvroSerializer();
+
+    @Test
+    void failedRecordDoesNotLeakIntoNextRecord() {
+        byte[] expected = serializer.serialize(TOPIC, validSnapshot());
+
+        assertThrows(SerializationException.class, () -> serializer.serialize(TOPIC, malformedSnapshot()));
+
+        assertArrayEquals(expected, serializer.serialize(TOPIC, validSnapshot()));
+    }
+
+    @Test
+    void failedRecordDoesNotLeakIntoNextBufferWrite() {
+        byte[] expected = serializer.serialize(TOPIC, validSnapshot());
+        ByteBuffer target = ByteBuffer.allocate(1024);
+
+        assertThrows(SerializationException.class, () -> serializer.serialize(TOPIC, malformedSnapshot(), target));
+        assertEquals(0, target.position());
+
+        int written = serializer.serialize(TOPIC, validSnapshot(), target);
+        assertArrayEquals(expected, Arrays.copyOf(target.array(), written));
+    }
+
+    private static SensorsSnapshotAvro validSnapshot() {
+        SensorStateAvro state = SensorStateAvro.newBuilder()
+                .setTimestamp(TIMESTAMP)
+                .setData(SwitchSensorAvro.newBuilder().setState(true).build())
+                .build();
+        return SensorsSnapshotAvro.newBuilder()
+                .setHubId("hub-1")
+                .setTimestamp(TIMESTAMP)
+                .setSensorsState(Map.of("switch-1", state))
+                .build();
+    }
+
+    private static SensorsSnapshotAvro malformedSnapshot() {
+        return new SensorsSnapshotAvro("hub-2", TIMESTAMP, null);
+    }
+}